@@ -0,0 +1,82 @@
+package com.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.support.AnalyzedReview;
+import com.support.AnalyzedSentence;
+import com.support.DependencyGraph;
+
+/**
+ * Turning the parser's typed dependencies into what the rules read: the
+ * indexed {@link DependencyGraph} (which replaced scanning the printed
+ * dependency string into depMatrix) and the printable relation matrix.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class DependencyGraphBenchmark {
+
+	private short[][] relation;
+	private int[][] governor;
+	private int[][] dependent;
+	private String[][] words;
+	private List<DependencyGraph> graphs;
+
+	@Setup
+	public void setUp() {
+		List<AnalyzedSentence> sentences = new ArrayList<AnalyzedSentence>();
+		for (AnalyzedReview review : Fixtures.corpus())
+			for (AnalyzedSentence sentence : review.getSentences())
+				sentences.add(sentence);
+		int n = sentences.size();
+		relation = new short[n][];
+		governor = new int[n][];
+		dependent = new int[n][];
+		words = new String[n][];
+		graphs = new ArrayList<DependencyGraph>(n);
+		for (int s = 0; s < n; s++) {
+			DependencyGraph graph = sentences.get(s).getDependencies();
+			graphs.add(graph);
+			words[s] = sentences.get(s).getWord();
+			relation[s] = new short[graph.size()];
+			governor[s] = new int[graph.size()];
+			dependent[s] = new int[graph.size()];
+			for (int e = 0; e < graph.size(); e++) {
+				relation[s][e] = graph.relation(e);
+				governor[s][e] = graph.governor(e);
+				dependent[s][e] = graph.dependent(e);
+			}
+		}
+	}
+
+	/** Builds the per-token edge index of every fixture sentence. */
+	@Benchmark
+	public void buildGraph(Blackhole bh) {
+		for (int s = 0; s < relation.length; s++)
+			bh.consume(new DependencyGraph(relation[s], governor[s], dependent[s]));
+	}
+
+	/** The relation/governor/dependent rows printed for every sentence. */
+	@Benchmark
+	public void toMatrix(Blackhole bh) {
+		for (int s = 0; s < words.length; s++)
+			bh.consume(graphs.get(s).toMatrix(words[s]));
+	}
+}
@@ -0,0 +1,185 @@
+package com.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.support.AnalyzedReview;
+import com.support.AnalyzedSentence;
+import com.support.AnnotationStore;
+import com.support.DependencyGraph;
+import com.support.IntIntMap;
+import com.support.ModelRegistry;
+import com.support.ParseBudget;
+import com.support.PcfgDependencyBackend;
+import com.support.ReviewFileReader;
+import com.support.ReviewNormalizer;
+import com.support.RuleEngine;
+import com.support.SentenceAnalyzer;
+import com.support.SentenceCache;
+import com.support.SymbolTable;
+
+/**
+ * The fixed review fixtures (src/main/resources/fixtures) at every stage of
+ * the pipeline, each computed once per benchmark JVM and only when a
+ * benchmark needs it: raw texts, normalized texts, sentences, tags,
+ * parsed sentences and the dictionaries at the end of the fixpoint.
+ */
+final class Fixtures {
+
+	static final ModelRegistry MODELS = ModelRegistry.getDefault();
+
+	private static String[] texts;
+	private static int[] scores;
+	private static List<String> sentences;
+	private static List<List<String>> reviewSentences;
+	private static String[][] words;
+	private static byte[][] tags;
+	private static List<AnalyzedReview> corpus;
+	private static SentenceAnalyzer analyzer;
+
+	private Fixtures() {
+	}
+
+	static synchronized String[] texts() {
+		if (texts == null) {
+			List<String> lines = readLines("reviews.txt");
+			texts = new String[lines.size()];
+			scores = new int[lines.size()];
+			for (int i = 0; i < texts.length; i++) {
+				String line = lines.get(i);
+				int first = line.indexOf(',');
+				int second = line.indexOf(',', first + 1);
+				scores[i] = (int) Double.parseDouble(line.substring(first + 1, second));
+				texts[i] = line.substring(second + 1);
+			}
+		}
+		return texts;
+	}
+
+	static synchronized String[] normalizedTexts() {
+		String raw[] = texts();
+		String normalized[] = new String[raw.length];
+		for (int i = 0; i < raw.length; i++)
+			normalized[i] = ReviewNormalizer.getDefault().normalize(raw[i]);
+		return normalized;
+	}
+
+	/** All sentences of all reviews, in file order. */
+	static synchronized List<String> sentences() {
+		if (sentences == null) {
+			sentences = new ArrayList<String>();
+			reviewSentences = new ArrayList<List<String>>();
+			for (String text : normalizedTexts()) {
+				List<String> split = ReviewFileReader.splitSentences(text);
+				reviewSentences.add(split);
+				sentences.addAll(split);
+			}
+		}
+		return sentences;
+	}
+
+	static synchronized String[][] words() {
+		if (words == null) {
+			List<String> all = sentences();
+			words = new String[all.size()][];
+			for (int i = 0; i < words.length; i++)
+				words[i] = all.get(i).split(" ");
+		}
+		return words;
+	}
+
+	static synchronized SentenceAnalyzer analyzer() {
+		if (analyzer == null)
+			analyzer = new SentenceAnalyzer(MODELS, SentenceCache.withDefaultBudget(),
+					new PcfgDependencyBackend(MODELS, 0, new ParseBudget()));
+		return analyzer;
+	}
+
+	static synchronized byte[][] tags() {
+		if (tags == null) {
+			String all[][] = words();
+			tags = new byte[all.length][];
+			for (int i = 0; i < all.length; i++)
+				tags[i] = analyzer().tag(all[i]);
+		}
+		return tags;
+	}
+
+	/** The reviews with every sentence tagged and parsed by the PCFG backend. */
+	static synchronized List<AnalyzedReview> corpus() {
+		if (corpus == null) {
+			String all[][] = words();
+			byte allTags[][] = tags();
+			PcfgDependencyBackend pcfg = new PcfgDependencyBackend(MODELS, 0, new ParseBudget());
+			corpus = new ArrayList<AnalyzedReview>();
+			int s = 0;
+			for (int r = 0; r < reviewSentences.size(); r++) {
+				AnalyzedSentence analyzed[] = new AnalyzedSentence[reviewSentences.get(r).size()];
+				for (int i = 0; i < analyzed.length; i++, s++) {
+					DependencyGraph graph = pcfg.parse(all[s], allTags[s]);
+					if (graph == null)
+						graph = DependencyGraph.adjacentModifiers(allTags[s]);
+					analyzed[i] = new AnalyzedSentence(sentences.get(s), all[s], allTags[s], graph);
+				}
+				corpus.add(new AnalyzedReview(r + 1, scores[r], analyzed));
+			}
+		}
+		return corpus;
+	}
+
+	/** The opinion lexicon of the fixtures: word id to polarity. */
+	static IntIntMap lexicon() {
+		SymbolTable symbols = SymbolTable.getDefault();
+		IntIntMap opDict = new IntIntMap();
+		for (String word : readLines("positive.txt"))
+			opDict.put(symbols.intern(word.trim().toLowerCase()), 1);
+		for (String word : readLines("negative.txt"))
+			opDict.put(symbols.intern(word.trim().toLowerCase()), -1);
+		return opDict;
+	}
+
+	/**
+	 * Runs the rules over the corpus until nothing is added, so that the
+	 * given dictionaries and annotations are in their final state.
+	 */
+	static void fixpoint(RuleEngine engine, IntIntMap opDict, IntIntMap feature, AnnotationStore annote) {
+		int added;
+		do {
+			int additions[] = new int[RuleEngine.RULES.length];
+			for (AnalyzedReview review : corpus())
+				for (AnalyzedSentence sentence : review.getSentences())
+					engine.apply(sentence, review.getReviewId(), review.getPolarity(), opDict, feature, annote,
+							additions);
+			added = 0;
+			for (int a : additions)
+				added += a;
+		} while (added > 0);
+	}
+
+	private static List<String> readLines(String name) {
+		InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+		if (in == null)
+			throw new IllegalStateException("Missing fixture " + name);
+		List<String> lines = new ArrayList<String>();
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null)
+					if (!line.trim().isEmpty())
+						lines.add(line);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return lines;
+	}
+}
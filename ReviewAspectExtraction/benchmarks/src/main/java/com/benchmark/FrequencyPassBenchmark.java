@@ -0,0 +1,74 @@
+package com.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.support.AnalyzedReview;
+import com.support.AnnotationStore;
+import com.support.FinalFeatureFilter;
+import com.support.FrequencyPass;
+import com.support.IntIntMap;
+import com.support.RuleEngine;
+import com.support.SymbolTable;
+
+/**
+ * The stages after the fixpoint on the fixture corpus: the adjective-noun
+ * pattern scan, the feature count and the final feature/annotation filter.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class FrequencyPassBenchmark {
+
+	private List<AnalyzedReview> corpus;
+	private RuleEngine engine;
+	private IntIntMap opDict;
+	private IntIntMap feature;
+	private AnnotationStore annote;
+	private FrequencyPass frequencyPass;
+	private IntIntMap featureFreq;
+
+	@Setup
+	public void setUp() {
+		corpus = Fixtures.corpus();
+		engine = new RuleEngine();
+		opDict = Fixtures.lexicon();
+		feature = new IntIntMap();
+		annote = new AnnotationStore();
+		Fixtures.fixpoint(engine, opDict, feature, annote);
+		frequencyPass = new FrequencyPass(SymbolTable.getDefault(), engine.getNegation(), null);
+		frequencyPass.addPatternFeatures(corpus, opDict, feature, annote);
+		featureFreq = frequencyPass.count(corpus, feature);
+	}
+
+	/** After the first call it only increments counts and finds the annotations already present. */
+	@Benchmark
+	public int patternFeatures() {
+		frequencyPass.addPatternFeatures(corpus, opDict, feature, annote);
+		return annote.size();
+	}
+
+	@Benchmark
+	public IntIntMap countFeatures() {
+		return frequencyPass.count(corpus, feature);
+	}
+
+	@Benchmark
+	public int[] finalFilter() {
+		return new FinalFeatureFilter(SymbolTable.getDefault(), featureFreq).filter(annote);
+	}
+}
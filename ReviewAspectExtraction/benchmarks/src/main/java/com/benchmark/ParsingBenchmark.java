@@ -0,0 +1,58 @@
+package com.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.support.DependencyBackend;
+import com.support.HeuristicDependencyBackend;
+import com.support.ParseBudget;
+import com.support.PcfgDependencyBackend;
+
+/**
+ * Dependency parsing of every (tagged) fixture sentence, per backend; pcfg
+ * is the englishPCFG path that DependencyParserImp.demoAPI wraps.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ParsingBenchmark {
+
+	@Param({ PcfgDependencyBackend.NAME, HeuristicDependencyBackend.NAME })
+	public String backend;
+
+	private String[][] words;
+	private byte[][] tags;
+	private DependencyBackend parser;
+
+	@Setup
+	public void setUp() {
+		words = Fixtures.words();
+		tags = Fixtures.tags();
+		boolean pcfg = backend.equals(PcfgDependencyBackend.NAME);
+		Fixtures.MODELS.warmUp(pcfg);
+		parser = pcfg ? new PcfgDependencyBackend(Fixtures.MODELS, 0, new ParseBudget())
+				: new HeuristicDependencyBackend();
+	}
+
+	/** All fixture sentences per operation. */
+	@Benchmark
+	public void parse(Blackhole bh) {
+		for (int i = 0; i < words.length; i++)
+			bh.consume(parser.parse(words[i], tags[i]));
+	}
+}
@@ -0,0 +1,72 @@
+package com.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.support.AnalyzedReview;
+import com.support.AnalyzedSentence;
+import com.support.AnnotationStore;
+import com.support.IntIntMap;
+import com.support.RuleEngine;
+
+/**
+ * One double-propagation rule (or all of them) over the parsed fixture
+ * corpus, with the dictionaries in their state at the end of the fixpoint,
+ * so every operation does the same matching work and adds nothing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class RuleBenchmark {
+
+	@Param({ "R1.1", "R1.2", "R4.1", "R3.1", "R3.2", "R2.1", "R2.2", "all" })
+	public String rule;
+
+	private List<AnalyzedReview> corpus;
+	private RuleEngine engine;
+	private IntIntMap opDict;
+	private IntIntMap feature;
+	private AnnotationStore annote;
+	private int rules;
+	private int[] additions;
+
+	@Setup
+	public void setUp() {
+		corpus = Fixtures.corpus();
+		engine = new RuleEngine();
+		opDict = Fixtures.lexicon();
+		feature = new IntIntMap();
+		annote = new AnnotationStore();
+		Fixtures.fixpoint(engine, opDict, feature, annote);
+		rules = RuleEngine.ALL_RULES;
+		for (int r = 0; r < RuleEngine.RULES.length; r++)
+			if (RuleEngine.RULES[r].equals(rule))
+				rules = 1 << r;
+		additions = new int[RuleEngine.RULES.length];
+	}
+
+	/** The whole corpus per operation. */
+	@Benchmark
+	public int apply() {
+		for (AnalyzedReview review : corpus)
+			for (AnalyzedSentence sentence : review.getSentences())
+				engine.apply(sentence, review.getReviewId(), review.getPolarity(), opDict, feature, annote, additions,
+						rules);
+		return annote.size();
+	}
+}
@@ -0,0 +1,44 @@
+package com.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.support.SentenceAnalyzer;
+
+/** POS tagging of every fixture sentence with the MaxentTagger. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class TaggingBenchmark {
+
+	private String[][] words;
+	private SentenceAnalyzer analyzer;
+
+	@Setup
+	public void setUp() {
+		words = Fixtures.words();
+		analyzer = Fixtures.analyzer();
+		Fixtures.MODELS.warmUp(false);
+	}
+
+	/** All fixture sentences per operation. */
+	@Benchmark
+	public void tag(Blackhole bh) {
+		for (String[] word : words)
+			bh.consume(analyzer.tag(word));
+	}
+}
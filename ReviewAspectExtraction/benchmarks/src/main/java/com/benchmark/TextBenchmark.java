@@ -0,0 +1,55 @@
+package com.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.support.ReviewFileReader;
+import com.support.ReviewNormalizer;
+
+/** Text stages: normalization of the raw review text and DocumentPreprocessor sentence splitting. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextBenchmark {
+
+	private String[] texts;
+	private String[] normalized;
+	private ReviewNormalizer normalizer;
+
+	@Setup
+	public void setUp() {
+		texts = Fixtures.texts();
+		normalized = Fixtures.normalizedTexts();
+		normalizer = ReviewNormalizer.getDefault();
+	}
+
+	/** All fixture reviews per operation. */
+	@Benchmark
+	public void normalize(Blackhole bh) {
+		for (String text : texts)
+			bh.consume(normalizer.normalize(text));
+	}
+
+	@Benchmark
+	public void splitSentences(Blackhole bh) {
+		for (String text : normalized) {
+			List<String> sentences = ReviewFileReader.splitSentences(text);
+			bh.consume(sentences);
+		}
+	}
+}
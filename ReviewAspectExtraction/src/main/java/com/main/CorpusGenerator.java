@@ -0,0 +1,155 @@
+package com.main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import com.support.RunOptions;
+
+/**
+ * Writes a synthetic review file in the input format
+ * (ProductId,Rating,Text), gzip-compressed when the name ends in ".gz".
+ * The texts are built from sentence templates over a fixed vocabulary of
+ * aspects and adjectives (some in a typical opinion lexicon, some only
+ * reachable through the rules), so every rule has something to fire on.
+ * The same seed and size always give the same file.
+ *
+ * Usage: CorpusGenerator <review file> <reviews> [-seed=N] [-products=N]
+ */
+public class CorpusGenerator {
+
+	private static final String[] ASPECTS = { "battery", "screen", "camera", "lens", "zoom", "flash", "charger",
+			"strap", "menu", "grip", "speaker", "display", "keyboard", "case", "cable", "button", "sensor",
+			"software", "design", "price", "sound", "signal", "memory", "processor", "warranty" };
+	private static final String[] PHRASES = { "battery life", "picture quality", "customer service", "sound quality",
+			"build quality", "screen resolution", "user interface", "charging cable", "image stabilization",
+			"storage space" };
+	private static final String[] POSITIVE = { "great", "good", "excellent", "amazing", "nice", "perfect", "bright",
+			"sharp", "fast", "solid", "clear", "comfortable", "awesome", "reliable", "beautiful" };
+	private static final String[] NEGATIVE = { "bad", "poor", "terrible", "awful", "weak", "slow", "cheap",
+			"flimsy", "dull", "noisy", "broken", "useless", "horrible", "disappointing", "blurry" };
+	/** Adjectives a typical lexicon lacks; the rules learn them from their neighbours. */
+	private static final String[] UNKNOWN = { "sturdy", "crisp", "snappy", "sleek", "bulky", "sluggish", "grainy",
+			"tinny", "glossy", "laggy", "roomy", "compact" };
+	private static final String[] OPENERS = { "", "", "", "honestly ", "overall ", "after a week ", "so far ",
+			"for the price ", "to be fair ", "in my opinion " };
+	private static final String[] PRODUCTS = { "phone", "camera", "tablet", "laptop", "player", "device", "unit" };
+	private static final String[] ENDINGS = { ".", ".", ".", "!", "...", " :-)", " ;-)", "?" };
+
+	private final Random random;
+	private final int products;
+
+	public CorpusGenerator(long seed, int products) {
+		this.random = new Random(seed);
+		this.products = Math.max(1, products);
+	}
+
+	public static void main(String args[]) throws IOException {
+		RunOptions options = new RunOptions(args, 2);
+		File file = new File(args[0]);
+		int reviews = Integer.parseInt(args[1]);
+		long start = System.nanoTime();
+		new CorpusGenerator(options.getLong("seed", 1), options.getInt("products", 1000)).write(file, reviews);
+		System.out.println("Wrote " + reviews + " reviews to " + file + " in "
+				+ (System.nanoTime() - start) / 1000000 + " ms (" + file.length() + " bytes)");
+	}
+
+	/** Writes the given number of reviews to file, replacing it. */
+	public void write(File file, int reviews) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		if (file.getName().endsWith(".gz"))
+			out = new GZIPOutputStream(out, 1 << 16);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+		try {
+			StringBuilder line = new StringBuilder(512);
+			for (int r = 0; r < reviews; r++) {
+				line.setLength(0);
+				review(line);
+				writer.write(line.toString());
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/** One line: product, rating and two to six sentences whose tone follows the rating. */
+	private void review(StringBuilder line) {
+		int rating = 1 + random.nextInt(5);
+		line.append(String.format("B%08d", random.nextInt(products))).append(',').append(rating).append(".0,");
+		int sentences = 2 + random.nextInt(5);
+		for (int s = 0; s < sentences; s++) {
+			if (s > 0)
+				line.append(' ');
+			sentence(line, rating);
+		}
+	}
+
+	private void sentence(StringBuilder line, int rating) {
+		// mostly in the tone of the rating, sometimes the opposite
+		boolean positive = random.nextInt(5) < rating;
+		String adjective = adjective(positive);
+		String other = adjective(positive);
+		String aspect = aspect();
+		String start = pick(OPENERS);
+		String text;
+		switch (random.nextInt(9)) {
+		case 0:
+			text = "the " + aspect + " is " + adjective;
+			break;
+		case 1:
+			text = "the " + aspect + " is " + adjective + " and " + pick(UNKNOWN);
+			break;
+		case 2:
+			text = "it has a " + adjective + " " + aspect + " and a " + other + " " + aspect();
+			break;
+		case 3:
+			text = "i love the " + aspect + " but the " + aspect() + " is " + adjective(!positive);
+			break;
+		case 4:
+			text = "the " + aspect + " is not " + adjective(!positive);
+			break;
+		case 5:
+			text = adjective + " " + aspect + " , " + other + " " + aspect() + " and " + pick(UNKNOWN) + " "
+					+ aspect();
+			break;
+		case 6:
+			text = "this " + pick(PRODUCTS) + " has a " + pick(UNKNOWN) + " " + aspect + " and the " + aspect()
+					+ " is " + adjective;
+			break;
+		case 7:
+			text = "i returned it after " + (2 + random.nextInt(30)) + " days because the " + aspect + " was "
+					+ adjective(false);
+			break;
+		default:
+			text = "the " + aspect + " and the " + aspect() + " are " + adjective + " but a bit " + pick(UNKNOWN);
+			break;
+		}
+		if (start.isEmpty())
+			line.append(Character.toUpperCase(text.charAt(0))).append(text, 1, text.length());
+		else
+			line.append(Character.toUpperCase(start.charAt(0))).append(start, 1, start.length()).append(text);
+		line.append(pick(ENDINGS));
+	}
+
+	private String aspect() {
+		return random.nextInt(4) == 0 ? pick(PHRASES) : pick(ASPECTS);
+	}
+
+	private String adjective(boolean positive) {
+		if (random.nextInt(6) == 0)
+			return pick(UNKNOWN);
+		return pick(positive ? POSITIVE : NEGATIVE);
+	}
+
+	private String pick(String[] words) {
+		return words[random.nextInt(words.length)];
+	}
+}
@@ -0,0 +1,405 @@
+package com.main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.support.AnalyzedReview;
+import com.support.ExtractionResult;
+import com.support.Json;
+import com.support.Metrics;
+import com.support.Review;
+import com.support.ReviewAspectExtractor;
+import com.support.RunOptions;
+import com.support.TraceSink;
+
+/**
+ * Keeps a {@link ReviewAspectExtractor} (models loaded and warmed up once)
+ * behind the JDK's HTTP server, for callers that need the aspects of a
+ * few reviews at a time within milliseconds.
+ *
+ * POST /extract takes {"reviews": [{"id": 1, "rating": 4, "text": "..."},
+ * ...]} (or the bare array; the id defaults to the position, 1-based) and
+ * answers {"annotations": ["1@battery@1", ...], ...}. Requests arriving
+ * together are queued and tagged and parsed as one micro-batch of up to
+ * -maxbatch reviews, waiting at most -batchwait ms for more to come; the
+ * rules then run over every request on its own, starting from the lexicon,
+ * so the answer to a request does not depend on the others. -concurrency
+ * batches are handled at once and at most -queue requests wait, further
+ * ones get 503. A body over -maxbody bytes gets 413 and a request of more
+ * than -maxbatch reviews 400. With -learn the opinion words learned from a request are
+ * kept for all later ones. GET /metrics gives the
+ * metrics in the Prometheus text format, queue depths included, and GET
+ * /health a short status.
+ *
+ * Usage: ExtractionServer <positive> <negative> [-host=127.0.0.1]
+ * [-port=8080] [-concurrency=1] [-queue=256] [-maxbatch=512]
+ * [-maxbody=4194304] [-batchwait=10] [-timeout=60000] [-httpthreads=64] [-learn]
+ * [-trace[=N]] [extraction options]
+ */
+public class ExtractionServer {
+
+	private static final Metrics METRICS = Metrics.getDefault();
+	private static final Metrics.Gauge QUEUED_REQUESTS = METRICS.gauge("server_queue_requests",
+			"Requests waiting for a micro-batch.");
+	private static final Metrics.Gauge QUEUED_REVIEWS = METRICS.gauge("server_queue_reviews",
+			"Reviews of the requests waiting for a micro-batch.");
+	private static final Metrics.Gauge RUNNING = METRICS.gauge("server_batches_running",
+			"Micro-batches being extracted.");
+	private static final Metrics.Counter REQUESTS = METRICS.counter("server_requests_total",
+			"Extraction requests answered.");
+	private static final Metrics.Counter REJECTED = METRICS.counter("server_rejected_total",
+			"Extraction requests turned away because the queue was full.");
+	private static final Metrics.Counter FAILED = METRICS.counter("server_failed_total",
+			"Extraction requests that were malformed, failed or timed out.");
+	private static final Metrics.Counter BATCHES = METRICS.counter("server_batches_total",
+			"Micro-batches extracted.");
+	private static final Metrics.Counter BATCH_REVIEWS = METRICS.counter("server_batch_reviews_total",
+			"Reviews extracted in micro-batches.");
+	private static final Metrics.Timer REQUEST_TIME = METRICS.timer("server_request_seconds",
+			"Time from receiving an extraction request to answering it.");
+	private static final Metrics.Timer BATCH_TIME = METRICS.timer("server_batch_seconds",
+			"Time to extract one micro-batch.");
+
+	private final ReviewAspectExtractor extractor;
+	private final BlockingQueue<Pending> queue;
+	private final int maxBatch;
+	private final long maxBody;
+	private final long batchWaitNanos;
+	private final long timeoutMillis;
+	private final boolean learn;
+	private final List<Thread> batchers = new ArrayList<Thread>();
+	private HttpServer http;
+
+	/** One request: its reviews, with the ids the caller gave them, and the answer to come. */
+	private static class Pending {
+		final List<Review> reviews;
+		final CompletableFuture<List<String>> annotations = new CompletableFuture<List<String>>();
+		volatile int batchReviews;
+
+		Pending(List<Review> reviews) {
+			this.reviews = reviews;
+		}
+	}
+
+	/** Requests may hold up to maxBatch reviews in a body of up to maxBody bytes. */
+	public ExtractionServer(ReviewAspectExtractor extractor, int queueCapacity, int maxBatch, long maxBody,
+			long batchWaitMillis, long timeoutMillis, boolean learn) {
+		this.extractor = extractor;
+		this.queue = new ArrayBlockingQueue<Pending>(Math.max(1, queueCapacity));
+		this.maxBatch = Math.max(1, maxBatch);
+		this.maxBody = maxBody;
+		this.batchWaitNanos = TimeUnit.MILLISECONDS.toNanos(batchWaitMillis);
+		this.timeoutMillis = timeoutMillis;
+		this.learn = learn;
+	}
+
+	public static void main(String args[]) throws IOException {
+		RunOptions options = new RunOptions(args, 2);
+		Metrics.getDefault().setTiming(!options.has("nometrics"));
+		final TraceSink trace = options.has("trace")
+				? new TraceSink(options.getInt("trace", 1), options.getInt("tracequeue", 65536)) : TraceSink.QUIET;
+		ReviewAspectExtractor extractor = new ReviewAspectExtractor.Builder()
+				.lexicon(new File(args[0]), new File(args[1]))
+				.options(options)
+				.trace(trace)
+				.build();
+		extractor.warmUp();
+		final ExtractionServer server = new ExtractionServer(extractor, options.getInt("queue", 256),
+				options.getInt("maxbatch", 512), options.getLong("maxbody", 4L << 20), options.getLong("batchwait", 10),
+				options.getLong("timeout", 60000), options.has("learn"));
+		server.start(new InetSocketAddress(options.get("host", "127.0.0.1"), options.getInt("port", 8080)),
+				options.getInt("concurrency", 1), options.getInt("httpthreads", 64));
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			public void run() {
+				server.stop();
+				try {
+					trace.close(1000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}));
+		System.out.println("Listening on http://" + options.get("host", "127.0.0.1") + ":"
+				+ server.http.getAddress().getPort() + "/extract (" + extractor.getModels().report() + ")");
+	}
+
+	/** Starts concurrency batch workers and the HTTP server with httpThreads request threads. */
+	public void start(InetSocketAddress address, int concurrency, int httpThreads) throws IOException {
+		for (int i = 0; i < Math.max(1, concurrency); i++) {
+			Thread batcher = new Thread(new Runnable() {
+				public void run() {
+					try {
+						while (true)
+							extract(nextBatch());
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}, "batcher-" + i);
+			batcher.setDaemon(true);
+			batcher.start();
+			batchers.add(batcher);
+		}
+		http = HttpServer.create(address, 0);
+		http.setExecutor(Executors.newFixedThreadPool(Math.max(1, httpThreads)));
+		http.createContext("/extract", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				handleExtract(exchange);
+			}
+		});
+		http.createContext("/metrics", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "text/plain; version=0.0.4", METRICS.toPrometheus());
+			}
+		});
+		http.createContext("/health", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "application/json",
+						"{\"status\": \"ok\", \"queued\": " + queue.size() + ", \"running\": " + RUNNING.get()
+								+ ", \"lexicon\": " + extractor.getLexiconSize() + "}\n");
+			}
+		});
+		http.start();
+	}
+
+	/** Stops accepting requests, gives the running ones a second and stops the workers. */
+	public void stop() {
+		if (http != null)
+			http.stop(1);
+		for (Thread batcher : batchers)
+			batcher.interrupt();
+		extractor.close();
+	}
+
+	/**
+	 * Waits for a request, then collects more until the batch is full or the
+	 * batch wait is over. Requests that were already answered (timed out)
+	 * while waiting are dropped.
+	 */
+	private List<Pending> nextBatch() throws InterruptedException {
+		List<Pending> batch = new ArrayList<Pending>();
+		Pending first;
+		do {
+			first = queue.take();
+			dequeued(first);
+		} while (first.annotations.isDone());
+		batch.add(first);
+		int reviews = first.reviews.size();
+		long deadline = System.nanoTime() + batchWaitNanos;
+		while (reviews < maxBatch) {
+			Pending next = queue.peek();
+			if (next != null && reviews + next.reviews.size() > maxBatch && !next.annotations.isDone())
+				break;
+			long left = deadline - System.nanoTime();
+			next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+			if (next == null)
+				break;
+			dequeued(next);
+			if (next.annotations.isDone())
+				continue;
+			batch.add(next);
+			reviews += next.reviews.size();
+		}
+		return batch;
+	}
+
+	private static void dequeued(Pending pending) {
+		QUEUED_REQUESTS.add(-1);
+		QUEUED_REVIEWS.add(-pending.reviews.size());
+	}
+
+	/**
+	 * Tags and parses the reviews of the batch together, then extracts every
+	 * request on its own from the lexicon, so that its annotations do not
+	 * depend on the requests it was batched with.
+	 */
+	private void extract(List<Pending> batch) {
+		List<Review> reviews = new ArrayList<Review>();
+		for (Pending pending : batch)
+			reviews.addAll(pending.reviews);
+		for (Pending pending : batch)
+			pending.batchReviews = reviews.size();
+		RUNNING.add(1);
+		long time = BATCH_TIME.start();
+		try {
+			List<AnalyzedReview> analyzed = extractor.analyze(reviews);
+			int from = 0;
+			for (Pending pending : batch) {
+				List<AnalyzedReview> own = analyzed.subList(from, from + pending.reviews.size());
+				from += pending.reviews.size();
+				try {
+					ExtractionResult result = extractor.extractAnalyzed(own);
+					if (learn)
+						extractor.learn(result);
+					List<String> annotations = new ArrayList<String>(result.getAnnotations().size());
+					for (ExtractionResult.Annotation annotation : result.getAnnotations())
+						annotations.add(annotation.toString());
+					pending.annotations.complete(annotations);
+				} catch (Exception e) {
+					pending.annotations.completeExceptionally(e);
+				}
+			}
+		} catch (Exception e) {
+			for (Pending pending : batch)
+				pending.annotations.completeExceptionally(e);
+		} finally {
+			BATCH_TIME.stop(time);
+			RUNNING.add(-1);
+			BATCHES.increment();
+			BATCH_REVIEWS.add(reviews.size());
+		}
+	}
+
+	private void handleExtract(HttpExchange exchange) throws IOException {
+		long time = REQUEST_TIME.start();
+		long start = System.nanoTime();
+		try {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				respond(exchange, 405, "application/json", error("POST a JSON review batch"));
+				return;
+			}
+			// the body is only read up to the limit, so one large request cannot fill the heap
+			String body = readBody(exchange, maxBody);
+			if (body == null) {
+				FAILED.increment();
+				respond(exchange, 413, "application/json", error("request body over " + maxBody + " bytes"));
+				return;
+			}
+			List<Review> reviews;
+			try {
+				reviews = reviews(Json.parse(body), maxBatch);
+			} catch (IllegalArgumentException e) {
+				FAILED.increment();
+				respond(exchange, 400, "application/json", error(e.getMessage()));
+				return;
+			}
+			Pending pending = new Pending(reviews);
+			QUEUED_REQUESTS.add(1);
+			QUEUED_REVIEWS.add(reviews.size());
+			if (!queue.offer(pending)) {
+				dequeued(pending);
+				REJECTED.increment();
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				respond(exchange, 503, "application/json", error("too many requests waiting"));
+				return;
+			}
+			List<String> annotations;
+			try {
+				annotations = pending.annotations.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// a batcher that has not taken the request yet skips it
+				pending.annotations.cancel(false);
+				FAILED.increment();
+				respond(exchange, 504, "application/json", error("no answer within " + timeoutMillis + " ms"));
+				return;
+			} catch (ExecutionException e) {
+				FAILED.increment();
+				respond(exchange, 500, "application/json", error(String.valueOf(e.getCause())));
+				return;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				FAILED.increment();
+				respond(exchange, 503, "application/json", error("shutting down"));
+				return;
+			}
+			StringBuilder json = new StringBuilder(64 + annotations.size() * 24).append("{\"annotations\": [");
+			for (int i = 0; i < annotations.size(); i++)
+				json.append(i > 0 ? ", " : "").append(Json.quote(annotations.get(i)));
+			json.append("], \"reviews\": ").append(reviews.size());
+			json.append(", \"batchReviews\": ").append(pending.batchReviews);
+			json.append(", \"millis\": ").append((System.nanoTime() - start) / 1000000).append("}\n");
+			REQUESTS.increment();
+			respond(exchange, 200, "application/json", json.toString());
+		} finally {
+			REQUEST_TIME.stop(time);
+		}
+	}
+
+	/**
+	 * The reviews of a request: an array of at most maxReviews {id, rating,
+	 * text}, or an object holding it as "reviews".
+	 */
+	static List<Review> reviews(Object document, int maxReviews) {
+		if (document instanceof Map)
+			document = ((Map<?, ?>) document).get("reviews");
+		if (!(document instanceof List))
+			throw new IllegalArgumentException("Expected {\"reviews\": [...]} or an array of reviews");
+		if (((List<?>) document).size() > maxReviews)
+			throw new IllegalArgumentException("More than " + maxReviews + " reviews");
+		List<Review> reviews = new ArrayList<Review>();
+		for (Object item : (List<?>) document) {
+			if (!(item instanceof Map))
+				throw new IllegalArgumentException("Review " + (reviews.size() + 1) + " is not an object");
+			Map<?, ?> review = (Map<?, ?>) item;
+			Object id = review.get("id");
+			Object rating = review.get("rating");
+			Object text = review.get("text");
+			if (!(rating instanceof Double) || !(text instanceof String) || (id != null && !(id instanceof Double)))
+				throw new IllegalArgumentException(
+						"Review " + (reviews.size() + 1) + " needs a numeric \"rating\" and a \"text\"");
+			reviews.add(new Review(id != null ? ((Double) id).intValue() : reviews.size() + 1,
+					((Double) rating).intValue(), (String) text));
+		}
+		if (reviews.isEmpty())
+			throw new IllegalArgumentException("No reviews");
+		return reviews;
+	}
+
+	/** The request body, or null when it is longer than limit bytes. */
+	private static String readBody(HttpExchange exchange, long limit) throws IOException {
+		InputStream in = exchange.getRequestBody();
+		try {
+			String length = exchange.getRequestHeaders().getFirst("Content-Length");
+			if (length != null && Long.parseLong(length.trim()) > limit)
+				return null;
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			byte buffer[] = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				if (body.size() + n > limit)
+					return null;
+				body.write(buffer, 0, n);
+			}
+			return new String(body.toByteArray(), StandardCharsets.UTF_8);
+		} catch (NumberFormatException e) {
+			return null;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String error(String message) {
+		return "{\"error\": " + Json.quote(message) + "}\n";
+	}
+
+	private static void respond(HttpExchange exchange, int status, String contentType, String body)
+			throws IOException {
+		byte bytes[] = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package com.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.support.AnalyzedReview;
+import com.support.AnalyzedSentence;
+import com.support.DependencyBackend;
+import com.support.DependencyGraph;
+import com.support.HeuristicDependencyBackend;
+import com.support.ModelRegistry;
+import com.support.ParseBudget;
+import com.support.PcfgDependencyBackend;
+import com.support.ReviewFileReader;
+import com.support.RunOptions;
+import com.support.SentenceAnalyzer;
+import com.support.SentenceCache;
+
+/**
+ * Runs every dependency backend over the same tagged sentences of a review
+ * file and prints their speed side by side, together with how far the
+ * relations the rules use agree with the PCFG parser's.
+ *
+ * Usage: ParserComparison <review file> [-maxreviews=N] [-basicdeps]
+ * [-maxparselength=N] [-parsetimeout=MS]
+ *
+ * Agreement compares unordered token pairs per relation class
+ * (amod/nsubj/dobj, dep, conj), since that is all the rules look at.
+ */
+public class ParserComparison {
+
+	private static final int[] CLASSES = { DependencyGraph.MOD_SUBJ_OBJ, DependencyGraph.DEP, DependencyGraph.CONJ };
+	private static final String[] CLASS_NAMES = { "amod/nsubj/dobj", "dep", "conj" };
+
+	public static void main(String args[]) throws IOException {
+		RunOptions options = new RunOptions(args, 1);
+		int maxReviews = options.getInt("maxreviews", Integer.MAX_VALUE);
+		ModelRegistry models = ModelRegistry.getDefault();
+		models.warmUp();
+		DependencyBackend backends[] = {
+				new PcfgDependencyBackend(models,
+						(options.has("basicdeps") ? SentenceAnalyzer.BASIC_DEPENDENCIES : 0)
+								| SentenceAnalyzer.RULE_RELATIONS_ONLY,
+						new ParseBudget(options.getInt("maxparselength", 0), options.getLong("parsetimeout", 0))),
+				new HeuristicDependencyBackend() };
+		// the sentences are tagged once (with the cheapest backend attached); every backend then parses the same tags
+		SentenceAnalyzer tagging = new SentenceAnalyzer(models, SentenceCache.withDefaultBudget(), backends[1]);
+
+		long nanos[] = new long[backends.length];
+		long edges[] = new long[backends.length];
+		long failed[] = new long[backends.length];
+		long reference[] = new long[CLASSES.length];
+		long found[][] = new long[backends.length][CLASSES.length];
+		long matched[][] = new long[backends.length][CLASSES.length];
+		long identical[] = new long[backends.length];
+		int sentences = 0, tokens = 0, reviews = 0;
+		// closed explicitly, since the loop may stop before the end of the file
+		ReviewFileReader.ReviewIterator it = new ReviewFileReader(new File(args[0]), tagging).iterator();
+		try {
+			// the limit is checked before the next review is read and analyzed
+			while (reviews < maxReviews && it.hasNext()) {
+				AnalyzedReview review = it.next();
+				reviews++;
+				for (AnalyzedSentence sentence : review.getSentences()) {
+					String word[] = sentence.getWord();
+					byte tags[] = sentence.getTags();
+					sentences++;
+					tokens += word.length;
+					List<List<Set<Long>>> pairs = newPairs(backends.length);
+					for (int b = 0; b < backends.length; b++) {
+						long start = System.nanoTime();
+						DependencyGraph graph = backends[b].parse(word, tags);
+						nanos[b] += System.nanoTime() - start;
+						if (graph == null) {
+							failed[b]++;
+							continue;
+						}
+						for (int e = 0; e < graph.size(); e++)
+							for (int c = 0; c < CLASSES.length; c++)
+								if ((graph.mask(e) & CLASSES[c]) != 0 && pairs.get(b).get(c).add(pair(graph, e)))
+									edges[b]++;
+					}
+					for (int c = 0; c < CLASSES.length; c++)
+						reference[c] += pairs.get(0).get(c).size();
+					for (int b = 0; b < backends.length; b++) {
+						boolean same = true;
+						for (int c = 0; c < CLASSES.length; c++) {
+							found[b][c] += pairs.get(b).get(c).size();
+							for (Long p : pairs.get(b).get(c))
+								if (pairs.get(0).get(c).contains(p))
+									matched[b][c]++;
+							same &= pairs.get(b).get(c).equals(pairs.get(0).get(c));
+						}
+						if (same)
+							identical[b]++;
+					}
+				}
+			}
+		} finally {
+			it.close();
+		}
+
+		System.out.println("Reviews " + reviews + ", sentences " + sentences + ", tokens " + tokens);
+		System.out.println(String.format("%-10s %12s %14s %12s %10s %10s", "backend", "total ms", "sentences/s",
+				"rule edges", "gave up", "identical"));
+		for (int b = 0; b < backends.length; b++)
+			System.out.println(String.format("%-10s %12d %14.1f %12d %10d %9.1f%%", backends[b].getName(),
+					nanos[b] / 1000000, sentences * 1e9 / Math.max(1, nanos[b]), edges[b], failed[b],
+					100.0 * identical[b] / Math.max(1, sentences)));
+		for (int b = 1; b < backends.length; b++) {
+			System.out.println();
+			System.out.println("Agreement of " + backends[b].getName() + " with " + backends[0].getName()
+					+ " (speed-up " + String.format("%.1f", (double) nanos[0] / Math.max(1, nanos[b])) + "x)");
+			System.out.println(String.format("%-16s %10s %10s %10s %10s %10s", "relations", backends[0].getName(),
+					backends[b].getName(), "both", "precision", "recall"));
+			long totalReference = 0, totalFound = 0, totalMatched = 0;
+			for (int c = 0; c < CLASSES.length; c++) {
+				printAgreement(CLASS_NAMES[c], reference[c], found[b][c], matched[b][c]);
+				totalReference += reference[c];
+				totalFound += found[b][c];
+				totalMatched += matched[b][c];
+			}
+			printAgreement("all", totalReference, totalFound, totalMatched);
+		}
+		if (backends[0] instanceof PcfgDependencyBackend)
+			System.out.println("\nParse budget: " + ((PcfgDependencyBackend) backends[0]).getBudget());
+	}
+
+	private static void printAgreement(String name, long reference, long found, long matched) {
+		System.out.println(String.format("%-16s %10d %10d %10d %9.1f%% %9.1f%%", name, reference, found, matched,
+				100.0 * matched / Math.max(1, found), 100.0 * matched / Math.max(1, reference)));
+	}
+
+	/** One set of token pairs per backend and relation class. */
+	private static List<List<Set<Long>>> newPairs(int backends) {
+		List<List<Set<Long>>> pairs = new ArrayList<List<Set<Long>>>(backends);
+		for (int b = 0; b < backends; b++) {
+			List<Set<Long>> classes = new ArrayList<Set<Long>>(CLASSES.length);
+			for (int c = 0; c < CLASSES.length; c++)
+				classes.add(new HashSet<Long>());
+			pairs.add(classes);
+		}
+		return pairs;
+	}
+
+	/** The two tokens of the edge, in either direction. */
+	private static long pair(DependencyGraph graph, int edge) {
+		int a = graph.governor(edge), b = graph.dependent(edge);
+		return ((long) Math.min(a, b) << 32) | (Math.max(a, b) & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,381 @@
+package com.main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import com.support.ParsedCorpusStore;
+import com.support.ReviewFileReader;
+import com.support.RunOptions;
+
+/**
+ * Runs the full extraction on a review file (optionally generated first
+ * with {@link CorpusGenerator}) in a child JVM, the way it is run from the
+ * command line, and reports its throughput, peak heap and number of
+ * fixpoint iterations. The outputs the users read (annote.txt,
+ * FinalFeature.txt and opine3.txt) can be compared with a golden copy
+ * saved from an earlier version, so that a faster code path can be shown
+ * to give the same aspects.
+ *
+ * With -snapshot=N the review file is also split after its first N lines
+ * (half of them by default): the first part is extracted with -snapshot,
+ * the rest added with -incremental, and the outputs of that run are
+ * compared with those of the full run.
+ *
+ * Usage: ThroughputHarness <positive> <negative> <review file> [-generate=N]
+ * [-seed=N] [-golden=DIR] [-savegolden=DIR] [-ordered] [-keepstore]
+ * [-snapshot[=N]] [-jvm="-Xmx4g ..."] [-log=FILE] [extraction options]
+ *
+ * Like the extraction, it must run from the folder holding "tagger/";
+ * the outputs are written to "../output" unless -output is given. Options it does not know are
+ * passed on to the extraction. The exit status is 1 when an output
+ * differs from the golden copy or from the full run.
+ */
+public class ThroughputHarness {
+
+	static final String[] COMPARED = { "annote.txt", "FinalFeature.txt", "opine3.txt" };
+	/** What an incremental run must give as the full run; initialFeatures.txt may differ. */
+	static final String[] INCREMENTAL_COMPARED = { "annote.txt", "FinalFeature.txt", "Freq_Feature.txt",
+			"opine3.txt" };
+	private static final Set<String> OWN_OPTIONS = new HashSet<String>(Arrays.asList("generate", "seed", "products",
+			"golden", "savegolden", "ordered", "keepstore", "snapshot", "jvm", "log"));
+	private static final String HEAD = "snapshot-first.txt", TAIL = "snapshot-rest.txt", SNAPSHOT = "harness.snapshot";
+
+	public static void main(String args[]) throws IOException, InterruptedException {
+		RunOptions options = new RunOptions(args, 3);
+		File input = new File(args[2]);
+		File output = new File(options.get("output", "../output"));
+		if (options.has("generate")) {
+			long start = System.nanoTime();
+			new CorpusGenerator(options.getLong("seed", 1), options.getInt("products", 1000)).write(input,
+					options.getInt("generate", 1000));
+			System.out.println("Generated " + options.getInt("generate", 1000) + " reviews into " + input + " in "
+					+ (System.nanoTime() - start) / 1000000 + " ms");
+		}
+		// a stale store or stale outputs would make the run faster or the comparison meaningless
+		if (!options.has("keepstore"))
+			Files.deleteIfExists(ParsedCorpusStore.storeFileFor(input, output).toPath());
+		for (String name : INCREMENTAL_COMPARED)
+			Files.deleteIfExists(new File(output, name).toPath());
+
+		File log = options.has("log") ? new File(options.get("log", null)) : null;
+		Run run = run(command(args, input), log, false);
+		report(run);
+
+		boolean same = true;
+		if (options.has("golden")) {
+			File golden = new File(options.get("golden", null));
+			for (String name : COMPARED)
+				same &= compare(new File(golden, name), new File(output, name), options.has("ordered"));
+		}
+		if (options.has("savegolden")) {
+			File golden = new File(options.get("savegolden", null));
+			golden.mkdirs();
+			for (String name : COMPARED)
+				Files.copy(new File(output, name).toPath(), new File(golden, name).toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			System.out.println("Saved the outputs as golden copy in " + golden);
+		}
+		if (options.has("snapshot"))
+			same &= snapshotRuns(args, options, input, output, log);
+		System.exit(same ? 0 : 1);
+	}
+
+	/**
+	 * Extracts the first part of the review file with -snapshot and adds the
+	 * rest with -incremental, then compares the outputs with those the full
+	 * run left in output, as sorted lines.
+	 */
+	private static boolean snapshotRuns(String args[], RunOptions options, File input, File output, File log)
+			throws IOException, InterruptedException {
+		File work = Files.createTempDirectory("snapshot").toFile();
+		try {
+			File full = new File(work, "full");
+			full.mkdirs();
+			for (String name : INCREMENTAL_COMPARED)
+				Files.copy(new File(output, name).toPath(), new File(full, name).toPath());
+			int first = options.getInt("snapshot", -1);
+			if (first < 0)
+				first = countLines(input) / 2;
+			File head = new File(work, HEAD);
+			File tail = new File(work, TAIL);
+			int rest = split(input, first, head, tail);
+			File snapshot = new File(output, SNAPSHOT);
+			deleteSnapshotFiles(output);
+			for (String name : INCREMENTAL_COMPARED)
+				Files.deleteIfExists(new File(output, name).toPath());
+			System.out.println("Snapshot of the first " + first + " lines, then " + rest + " lines added");
+
+			Run run = run(command(args, head, "-snapshot=" + snapshot.getPath()), log, true);
+			report(run);
+			run = run(command(args, tail, "-incremental=" + snapshot.getPath()), log, true);
+			report(run);
+			boolean same = true;
+			for (String name : INCREMENTAL_COMPARED)
+				same &= compare(new File(full, name), new File(output, name), false, "full run");
+			System.out.println(same ? "Snapshot and incremental runs give the outputs of the full run"
+					: "Snapshot and incremental runs differ from the full run");
+			return same;
+		} finally {
+			deleteSnapshotFiles(output);
+			File files[] = new File(work, "full").listFiles();
+			if (files != null)
+				for (File file : files)
+					file.delete();
+			new File(work, "full").delete();
+			new File(work, HEAD).delete();
+			new File(work, TAIL).delete();
+			work.delete();
+		}
+	}
+
+	/** Deletes the snapshot and the stores of the split review file from output. */
+	private static void deleteSnapshotFiles(File output) throws IOException {
+		Files.deleteIfExists(new File(output, SNAPSHOT).toPath());
+		File files[] = output.listFiles();
+		if (files != null)
+			for (File file : files)
+				if ((file.getName().startsWith(HEAD) || file.getName().startsWith(TAIL))
+						&& file.getName().endsWith(".parsed"))
+					Files.deleteIfExists(file.toPath());
+	}
+
+	/** The child JVM running the extraction over reviews, with extra options. */
+	private static List<String> command(String args[], File reviews, String... extra) {
+		RunOptions options = new RunOptions(args, 3);
+		List<String> command = new ArrayList<String>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		String jvm = options.get("jvm", "").trim();
+		if (!jvm.isEmpty())
+			command.addAll(Arrays.asList(jvm.split("\\s+")));
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ProductaspectExtraction.class.getName());
+		command.add(args[0]);
+		command.add(args[1]);
+		command.add(reviews.getPath());
+		for (int i = 3; i < args.length; i++)
+			if (!OWN_OPTIONS.contains(optionName(args[i])))
+				command.add(args[i]);
+		command.addAll(Arrays.asList(extra));
+		return command;
+	}
+
+	/** Prints the throughput of a run, exiting if the extraction failed. */
+	private static void report(Run run) {
+		if (run.exitCode != 0) {
+			System.out.println("Extraction failed with exit code " + run.exitCode);
+			System.exit(run.exitCode);
+		}
+		double seconds = run.nanos / 1e9;
+		double working = Math.max(1e-3, seconds - Math.max(0, run.warmUpMillis) / 1000.0);
+		System.out.println("Reviews " + run.reviews + ", sentences " + run.sentences + ", fixpoint iterations "
+				+ run.iterations);
+		System.out.println(String.format("Wall time %.1f s, of which model warm-up %.1f s", seconds,
+				Math.max(0, run.warmUpMillis) / 1000.0));
+		System.out.println(String.format("Throughput %.1f reviews/s, %.1f sentences/s (excluding warm-up)",
+				run.reviews / working, run.sentences / working));
+		System.out.println("Peak heap " + (run.peakHeap < 0 ? "unknown" : run.peakHeap / (1024 * 1024) + " MB"));
+	}
+
+	private static BufferedReader lines(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		if (ReviewFileReader.isCompressed(file))
+			in = new GZIPInputStream(in, 1 << 16);
+		return new BufferedReader(new InputStreamReader(in, StandardCharsets.ISO_8859_1), 1 << 16);
+	}
+
+	private static int countLines(File file) throws IOException {
+		BufferedReader reader = lines(file);
+		try {
+			int lines = 0;
+			while (reader.readLine() != null)
+				lines++;
+			return lines;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Writes the first lines of the review file to head and the others to
+	 * tail, byte for byte, and returns the number of lines in tail.
+	 */
+	private static int split(File file, int first, File head, File tail) throws IOException {
+		BufferedReader reader = lines(file);
+		try {
+			Writer out = new BufferedWriter(
+					new OutputStreamWriter(new FileOutputStream(head), StandardCharsets.ISO_8859_1), 1 << 16);
+			int line = 0;
+			String text;
+			while ((text = reader.readLine()) != null) {
+				if (line++ == first) {
+					out.close();
+					out = new BufferedWriter(
+							new OutputStreamWriter(new FileOutputStream(tail), StandardCharsets.ISO_8859_1), 1 << 16);
+				}
+				out.write(text);
+				out.write('\n');
+			}
+			out.close();
+			if (line <= first)
+				new FileOutputStream(tail).close();
+			return Math.max(0, line - first);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/** What the extraction reported about itself. */
+	private static class Run {
+		int exitCode;
+		long nanos;
+		long warmUpMillis = -1;
+		long peakHeap = -1;
+		int reviews;
+		int sentences;
+		int iterations;
+	}
+
+	/**
+	 * Runs the extraction, keeping from its console output only the lines
+	 * the report needs (all of it goes to log, if given, appended to it when
+	 * append is set).
+	 */
+	private static Run run(List<String> command, File log, boolean append) throws IOException, InterruptedException {
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		Run run = new Run();
+		long start = System.nanoTime();
+		Process process = builder.start();
+		Writer logWriter = log == null ? null
+				: new BufferedWriter(new OutputStreamWriter(new FileOutputStream(log, append), StandardCharsets.UTF_8),
+						1 << 16);
+		BufferedReader console = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+		try {
+			String line;
+			while ((line = console.readLine()) != null) {
+				if (logWriter != null) {
+					logWriter.write(line);
+					logWriter.write('\n');
+				}
+				if (line.startsWith("Iteration ") && line.contains(" added "))
+					run.iterations = Math.max(run.iterations,
+							Integer.parseInt(line.substring(10, line.indexOf(' ', 10))) + 1);
+				else if (line.startsWith("Corpus: ")) {
+					String parts[] = line.substring(8).split("[ ,]+");
+					run.reviews = Integer.parseInt(parts[0]);
+					run.sentences = Integer.parseInt(parts[2]);
+				} else if (line.startsWith("Peak heap ")) {
+					run.peakHeap = Long.parseLong(line.substring(10, line.indexOf(' ', 10)));
+				} else if (line.contains("WarmUpMs="))
+					run.warmUpMillis = Long.parseLong(line.substring(line.indexOf("WarmUpMs=") + 9).split(" ")[0]);
+			}
+		} finally {
+			console.close();
+			if (logWriter != null)
+				logWriter.close();
+		}
+		run.exitCode = process.waitFor();
+		run.nanos = System.nanoTime() - start;
+		return run;
+	}
+
+	/**
+	 * Compares an output with its golden copy, as sorted lines unless ordered
+	 * is set (the parallel mode may write the same lines in another order),
+	 * and prints the outcome with a few of the differing lines.
+	 */
+	static boolean compare(File golden, File actual, boolean ordered) throws IOException {
+		return compare(golden, actual, ordered, "golden");
+	}
+
+	/** Like {@link #compare(File, File, boolean)}, naming the expected copy reference. */
+	static boolean compare(File golden, File actual, boolean ordered, String reference) throws IOException {
+		if (!actual.exists()) {
+			System.out.println(actual.getName() + ": missing");
+			return false;
+		}
+		List<String> expected = readLines(golden);
+		List<String> found = readLines(actual);
+		if (!ordered) {
+			Collections.sort(expected);
+			Collections.sort(found);
+		}
+		if (expected.equals(found)) {
+			System.out.println(actual.getName() + ": same as " + reference + " (" + found.size() + " lines)");
+			return true;
+		}
+		List<String> missing = new ArrayList<String>();
+		List<String> extra = new ArrayList<String>();
+		if (ordered) {
+			int first = 0;
+			while (first < expected.size() && first < found.size() && expected.get(first).equals(found.get(first)))
+				first++;
+			System.out.println(actual.getName() + ": differs from " + reference + " from line " + (first + 1) + " (" + reference + " "
+					+ expected.size() + " lines, now " + found.size() + ")");
+			if (first < expected.size())
+				missing.add(expected.get(first));
+			if (first < found.size())
+				extra.add(found.get(first));
+		} else {
+			int e = 0, f = 0;
+			while (e < expected.size() || f < found.size()) {
+				int c = e == expected.size() ? 1 : f == found.size() ? -1 : expected.get(e).compareTo(found.get(f));
+				if (c == 0) {
+					e++;
+					f++;
+				} else if (c < 0)
+					missing.add(expected.get(e++));
+				else
+					extra.add(found.get(f++));
+			}
+			System.out.println(actual.getName() + ": differs from " + reference + ", " + missing.size() + " lines missing, "
+					+ extra.size() + " extra");
+		}
+		for (int i = 0; i < Math.min(5, missing.size()); i++)
+			System.out.println("  - " + missing.get(i));
+		for (int i = 0; i < Math.min(5, extra.size()); i++)
+			System.out.println("  + " + extra.get(i));
+		return false;
+	}
+
+	private static List<String> readLines(File file) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null)
+				lines.add(line);
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+
+	private static String optionName(String arg) {
+		while (arg.startsWith("-"))
+			arg = arg.substring(1);
+		int eq = arg.indexOf('=');
+		return eq < 0 ? arg : arg.substring(0, eq);
+	}
+}
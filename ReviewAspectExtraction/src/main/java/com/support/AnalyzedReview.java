@@ -0,0 +1,57 @@
+package com.support;
+
+/**
+ * One line of the review file after preprocessing and analysis: its
+ * 1-based position in the file (the review id used in annote.txt), the
+ * overall rating and the analyzed sentences.
+ *
+ * Reviews read from text are analyzed lazily, on the first call to
+ * {@link #getSentences()}, so that the expensive tagging and parsing runs
+ * on whichever worker thread processes the review.
+ */
+public class AnalyzedReview {
+
+	private final int reviewId;
+	private final int score;
+	private final String[] sentenceText;
+	private final SentenceAnalyzer analyzer;
+	private AnalyzedSentence[] sentences;
+
+	public AnalyzedReview(int reviewId, int score, AnalyzedSentence[] sentences) {
+		this.reviewId = reviewId;
+		this.score = score;
+		this.sentences = sentences;
+		this.sentenceText = null;
+		this.analyzer = null;
+	}
+
+	public AnalyzedReview(int reviewId, int score, String[] sentenceText, SentenceAnalyzer analyzer) {
+		this.reviewId = reviewId;
+		this.score = score;
+		this.sentenceText = sentenceText;
+		this.analyzer = analyzer;
+	}
+
+	public int getReviewId() {
+		return reviewId;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	/** Polarity implied by the rating: 1 for three stars and above, -1 otherwise. */
+	public int getPolarity() {
+		return score >= 3 ? 1 : -1;
+	}
+
+	public synchronized AnalyzedSentence[] getSentences() {
+		if (sentences == null) {
+			AnalyzedSentence analyzed[] = new AnalyzedSentence[sentenceText.length];
+			for (int i = 0; i < analyzed.length; i++)
+				analyzed[i] = analyzer.analyze(sentenceText[i]);
+			sentences = analyzed;
+		}
+		return sentences;
+	}
+}
@@ -0,0 +1,165 @@
+package com.support;
+
+/**
+ * Result of running the NLP models over one sentence: the tokens, their POS
+ * tags and the typed dependencies between token positions that the rules
+ * work on. Instances can be cached and shared between fixpoint iterations.
+ *
+ * The dependencies may be left to a {@link DependencyBackend} that runs on
+ * the first call to {@link #getDependencies()}: the rule engine only asks
+ * for them when a token of the sentence is in one of its dictionaries, so
+ * most sentences are never parsed at all.
+ */
+public class AnalyzedSentence {
+
+	private static final Metrics.Timer PARSE = Metrics.getDefault().stage("parse");
+	private static final Metrics.Counter FALLBACKS = Metrics.getDefault().counter("parse_fallbacks_total",
+			"Sentences the backend gave up on, given the adjective-noun edges instead.");
+
+	private final String sentence;
+	private final String[] word;
+	private final byte[] tags;
+	private final byte[] tagMasks;
+	private volatile DependencyGraph dependencies;
+	private DependencyBackend backend;
+	/** The word ids of the table they were last asked for. */
+	private volatile WordIds wordIds;
+	private volatile Runnable parsedListener;
+
+	/** tags holds one {@link PosTags} id per token. */
+	public AnalyzedSentence(String sentence, String[] word, byte[] tags, DependencyGraph dependencies) {
+		this.sentence = sentence;
+		this.word = word;
+		this.tags = tags;
+		this.dependencies = dependencies;
+		this.tagMasks = new byte[tags.length];
+		for (int i = 0; i < tags.length; i++)
+			tagMasks[i] = (byte) PosTags.mask(tags[i]);
+	}
+
+	/** A sentence whose dependencies the backend computes when they are first needed. */
+	public AnalyzedSentence(String sentence, String[] word, byte[] tags, DependencyBackend backend) {
+		this(sentence, word, tags, (DependencyGraph) null);
+		this.backend = backend;
+	}
+
+	/** The space separated sentence text the tokens were split from. */
+	public String getSentence() {
+		return sentence;
+	}
+
+	public String[] getWord() {
+		return word;
+	}
+
+	/** Ids of the lower-cased tokens in the default {@link SymbolTable}. */
+	public int[] getWordIds() {
+		return getWordIds(SymbolTable.getDefault());
+	}
+
+	/**
+	 * Ids of the lower-cased tokens in the given table, interned on first
+	 * use. They are kept for the table asked last, so a sentence shared by
+	 * extractors with different tables is interned into each of them; the
+	 * ids of a layered table are not kept, so that a cached sentence does not
+	 * hold on to the layer of one extraction.
+	 */
+	public int[] getWordIds(SymbolTable symbols) {
+		WordIds ids = wordIds;
+		if (ids == null || ids.symbols != symbols) {
+			ids = new WordIds(symbols, new int[word.length]);
+			for (int i = 0; i < word.length; i++)
+				ids.ids[i] = symbols.intern(word[i].toLowerCase());
+			if (!symbols.isLayered())
+				wordIds = ids;
+		}
+		return ids.ids;
+	}
+
+	private static class WordIds {
+
+		final SymbolTable symbols;
+		final int[] ids;
+
+		WordIds(SymbolTable symbols, int[] ids) {
+			this.symbols = symbols;
+			this.ids = ids;
+		}
+	}
+
+	/** The POS tags as text, null where a token has no tag. */
+	public String[] getWordPOS() {
+		String wordPOS[] = new String[tags.length];
+		for (int i = 0; i < tags.length; i++)
+			wordPOS[i] = PosTags.tagName(tags[i]);
+		return wordPOS;
+	}
+
+	/** {@link PosTags} id per token. */
+	public byte[] getTags() {
+		return tags;
+	}
+
+	/** {@link PosTags} class bits per token. */
+	public byte[] getTagMasks() {
+		return tagMasks;
+	}
+
+	/** Whether the dependencies are known without running the backend. */
+	public boolean isParsed() {
+		return dependencies != null;
+	}
+
+	/**
+	 * The dependencies, parsing the sentence on the first call if needed. A
+	 * sentence the backend gives up on (e.g. over the parse budget) gets the
+	 * adjective-noun adjacency edges instead.
+	 */
+	public DependencyGraph getDependencies() {
+		DependencyGraph graph = dependencies;
+		if (graph == null) {
+			boolean parsed = false;
+			synchronized (this) {
+				graph = dependencies;
+				if (graph == null) {
+					long time = PARSE.start();
+					graph = backend.parse(word, tags);
+					PARSE.stop(time);
+					if (graph == null) {
+						FALLBACKS.increment();
+						graph = DependencyGraph.adjacentModifiers(tags);
+					}
+					dependencies = graph;
+					backend = null;
+					parsed = true;
+				}
+			}
+			Runnable listener = parsedListener;
+			if (parsed && listener != null)
+				listener.run();
+		}
+		return graph;
+	}
+
+	/** Called once the backend has set the dependencies, e.g. so that a cache charges their size. */
+	void setParsedListener(Runnable listener) {
+		parsedListener = listener;
+	}
+
+	/** Rough retained size in bytes, used by {@link SentenceCache} to respect its memory budget. */
+	public long estimatedBytes() {
+		long bytes = 16 + 5 * 8 + 40 + 2L * sentence.length() + 16 + 4L * word.length;
+		bytes += arrayBytes(word) + 2 * (16 + tags.length);
+		DependencyGraph graph = dependencies;
+		bytes += 16 + 4 * 8 + 4 * 16 + 11L * (graph != null ? graph.size() : 0);
+		return bytes;
+	}
+
+	private static long arrayBytes(String[] values) {
+		long bytes = 16 + 8L * values.length;
+		for (String s : values)
+			if (s != null)
+				bytes += 40 + 2L * s.length();
+		return bytes;
+	}
+}
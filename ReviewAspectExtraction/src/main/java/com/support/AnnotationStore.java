@@ -0,0 +1,100 @@
+package com.support;
+
+import java.util.Arrays;
+
+/**
+ * The annotations found so far, each a (review id, aspect, polarity)
+ * record kept once, in the order it was first added. Records live in
+ * primitive arrays with the aspects as {@link SymbolTable} ids; an open-addressing
+ * hash index over the records makes the duplicate check constant time.
+ * The "reviewId@aspect@polarity" text is only built when written out.
+ */
+public class AnnotationStore {
+
+	private final SymbolTable symbols;
+	private int[] reviewIds = new int[16];
+	private int[] aspectOf = new int[16];
+	private byte[] polarities = new byte[16];
+	private int size;
+	/** Record index + 1 per slot, 0 for an empty slot; at most half full. */
+	private int[] slots = new int[32];
+
+	public AnnotationStore() {
+		this(SymbolTable.getDefault());
+	}
+
+	public AnnotationStore(SymbolTable symbols) {
+		this.symbols = symbols;
+	}
+
+	/** Adds the annotation unless it is already present; returns whether it was added. */
+	public boolean add(int reviewId, int aspectId, int polarity) {
+		int mask = slots.length - 1;
+		int slot = hash(reviewId, aspectId, polarity) & mask;
+		for (int record; (record = slots[slot]) != 0; slot = (slot + 1) & mask) {
+			record--;
+			if (reviewIds[record] == reviewId && aspectOf[record] == aspectId && polarities[record] == polarity)
+				return false;
+		}
+		if (size == reviewIds.length) {
+			reviewIds = Arrays.copyOf(reviewIds, size * 2);
+			aspectOf = Arrays.copyOf(aspectOf, size * 2);
+			polarities = Arrays.copyOf(polarities, size * 2);
+		}
+		reviewIds[size] = reviewId;
+		aspectOf[size] = aspectId;
+		polarities[size] = (byte) polarity;
+		slots[slot] = ++size;
+		if (size * 2 > slots.length)
+			rehash();
+		return true;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int record = 0; record < size; record++) {
+			int slot = hash(reviewIds[record], aspectOf[record], polarities[record]) & mask;
+			while (slots[slot] != 0)
+				slot = (slot + 1) & mask;
+			slots[slot] = record + 1;
+		}
+	}
+
+	private static int hash(int reviewId, int aspectId, int polarity) {
+		int h = reviewId * 0x9E3779B1 + aspectId * 0x85EBCA6B + polarity;
+		return h ^ (h >>> 16);
+	}
+
+	/** Appends the annotations of another store that are not present yet, in its order. */
+	public void addAll(AnnotationStore other) {
+		for (int i = 0; i < other.size; i++)
+			add(other.reviewIds[i], other.aspectOf[i], other.polarities[i]);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int reviewId(int index) {
+		return reviewIds[index];
+	}
+
+	public String aspect(int index) {
+		return symbols.name(aspectOf[index]);
+	}
+
+	/** {@link SymbolTable} id of the aspect of an annotation. */
+	public int aspectId(int index) {
+		return aspectOf[index];
+	}
+
+	public int polarity(int index) {
+		return polarities[index];
+	}
+
+	/** The annotation in the annote.txt format: reviewId@aspect@polarity. */
+	public String format(int index) {
+		return reviewIds[index] + "@" + aspect(index) + "@" + Integer.toString(polarities[index]);
+	}
+}
@@ -0,0 +1,28 @@
+package com.support;
+
+/**
+ * Source of the typed dependencies of a tagged sentence. The rules only
+ * look at the relation classes of {@link DependencyGraph} (amod/nsubj/dobj,
+ * dep and conj*), so a backend may trade accuracy for speed as long as it
+ * produces those.
+ *
+ * Backends are shared by all worker threads and must be thread-safe.
+ */
+public interface DependencyBackend {
+
+	/** Name used on the command line (-parser=name) and in reports. */
+	String getName();
+
+	/**
+	 * Flag bits describing the dependencies produced (see
+	 * {@link SentenceAnalyzer#BASIC_DEPENDENCIES} and the other flags); they
+	 * are stored with a parsed corpus, which is rebuilt when they change.
+	 */
+	int getFlags();
+
+	/**
+	 * Dependencies of the sentence given its tokens and their {@link PosTags}
+	 * ids, or null when the backend gave up on it.
+	 */
+	DependencyGraph parse(String[] word, byte[] tags);
+}
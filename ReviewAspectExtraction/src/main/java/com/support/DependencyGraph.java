@@ -0,0 +1,186 @@
+package com.support;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Typed dependencies of one sentence as parallel primitive arrays: relation
+ * id, governor index and dependent index per edge. Indices are 0-based token
+ * positions; the artificial ROOT governor is {@link #ROOT}.
+ *
+ * Edges are also indexed per token, so the rules can visit the edges of a
+ * token without scanning the whole sentence.
+ *
+ * Relation names are interned into small ids shared by the whole process.
+ * Each id carries a bit mask telling which rule families may use it, so the
+ * rules test a bit instead of comparing relation strings. Looking a relation
+ * up never locks; only interning a new one does.
+ */
+public class DependencyGraph {
+
+	public static final int ROOT = -1;
+
+	/** amod, nsubj and dobj: the relations of R1.x, R2.x and R3.2. */
+	public static final int MOD_SUBJ_OBJ = 1;
+	/** the unclassified "dep" relation, also accepted by R2.x. */
+	public static final int DEP = 2;
+	/** any conj* relation, used by R3.1 and R4.1. */
+	public static final int CONJ = 4;
+
+	private static final ConcurrentHashMap<String, Short> relationIds = new ConcurrentHashMap<String, Short>();
+	/** Written once per id before the id is published; replaced by a copy when they grow. */
+	private static volatile String[] relationNames = new String[64];
+	private static volatile int[] relationMasks = new int[64];
+	private static int relations;
+
+	private final short[] relation;
+	private final int[] governor;
+	private final int[] dependent;
+	private final byte[] masks;
+	/** Edges touching token t are incident[incidentStart[t] .. incidentStart[t + 1]), in edge order. */
+	private final int[] incidentStart;
+	private final int[] incident;
+
+	public DependencyGraph(short[] relation, int[] governor, int[] dependent) {
+		this.relation = relation;
+		this.governor = governor;
+		this.dependent = dependent;
+		this.masks = new byte[relation.length];
+		int tokens = 0;
+		for (int i = 0; i < relation.length; i++) {
+			masks[i] = (byte) relationMask(relation[i]);
+			tokens = Math.max(tokens, Math.max(governor[i], dependent[i]) + 1);
+		}
+		incidentStart = new int[tokens + 1];
+		for (int i = 0; i < relation.length; i++) {
+			if (governor[i] != ROOT)
+				incidentStart[governor[i] + 1]++;
+			if (dependent[i] != ROOT && dependent[i] != governor[i])
+				incidentStart[dependent[i] + 1]++;
+		}
+		for (int t = 0; t < tokens; t++)
+			incidentStart[t + 1] += incidentStart[t];
+		incident = new int[incidentStart[tokens]];
+		int fill[] = Arrays.copyOf(incidentStart, tokens);
+		for (int i = 0; i < relation.length; i++) {
+			if (governor[i] != ROOT)
+				incident[fill[governor[i]]++] = i;
+			if (dependent[i] != ROOT && dependent[i] != governor[i])
+				incident[fill[dependent[i]]++] = i;
+		}
+	}
+
+	/**
+	 * The graph used when a sentence is not parsed (see {@link ParseBudget}):
+	 * an amod edge from every noun to an adjective right before it, the
+	 * JJ-followed-by-NN pattern of the frequency pass.
+	 */
+	public static DependencyGraph adjacentModifiers(byte[] tags) {
+		short amod = relationId("amod");
+		int n = 0;
+		int governor[] = new int[tags.length];
+		int dependent[] = new int[tags.length];
+		for (int i = 0; i + 1 < tags.length; i++)
+			if ((PosTags.mask(tags[i]) & PosTags.ADJ) != 0 && (PosTags.mask(tags[i + 1]) & PosTags.NOUN) != 0) {
+				governor[n] = i + 1;
+				dependent[n] = i;
+				n++;
+			}
+		short relation[] = new short[n];
+		Arrays.fill(relation, amod);
+		return new DependencyGraph(relation, Arrays.copyOf(governor, n), Arrays.copyOf(dependent, n));
+	}
+
+	public int size() {
+		return relation.length;
+	}
+
+	public short relation(int edge) {
+		return relation[edge];
+	}
+
+	public int governor(int edge) {
+		return governor[edge];
+	}
+
+	public int dependent(int edge) {
+		return dependent[edge];
+	}
+
+	/** Rule families (see the mask constants) the relation of this edge belongs to. */
+	public int mask(int edge) {
+		return masks[edge];
+	}
+
+	/** Number of edges touching token. */
+	public int degree(int token) {
+		return token + 1 < incidentStart.length ? incidentStart[token + 1] - incidentStart[token] : 0;
+	}
+
+	/** The k-th edge touching token, 0 <= k < degree(token). */
+	public int incident(int token, int k) {
+		return incident[incidentStart[token] + k];
+	}
+
+	/** The other end of the edge if it touches token, otherwise {@link #ROOT}. */
+	public int other(int edge, int token) {
+		if (governor[edge] == token)
+			return dependent[edge];
+		if (dependent[edge] == token)
+			return governor[edge];
+		return ROOT;
+	}
+
+	/** Rows of relation, governor word and dependent word, for printing. */
+	public String[][] toMatrix(String[] word) {
+		String rows[][] = new String[relation.length][];
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = new String[] { relationName(relation[i]), wordAt(word, governor[i]), wordAt(word, dependent[i]) };
+		return rows;
+	}
+
+	private static String wordAt(String[] word, int index) {
+		return index == ROOT ? "ROOT" : word[index];
+	}
+
+	public static short relationId(String name) {
+		Short id = relationIds.get(name);
+		return id != null ? id : addRelation(name);
+	}
+
+	private static synchronized short addRelation(String name) {
+		Short id = relationIds.get(name);
+		if (id != null)
+			return id;
+		short added = (short) relations++;
+		if (added == relationNames.length) {
+			relationNames = Arrays.copyOf(relationNames, added * 2);
+			relationMasks = Arrays.copyOf(relationMasks, added * 2);
+		}
+		relationNames[added] = name;
+		relationMasks[added] = classify(name);
+		// published by the put: a reader that gets the id from the map also sees the entries and the grown arrays
+		relationIds.put(name, added);
+		return added;
+	}
+
+	public static String relationName(short id) {
+		return relationNames[id];
+	}
+
+	public static int relationMask(short id) {
+		return relationMasks[id];
+	}
+
+	private static int classify(String name) {
+		String rel = name.toLowerCase();
+		int mask = 0;
+		if (rel.equals("amod") || rel.equals("nsubj") || rel.equals("dobj"))
+			mask |= MOD_SUBJ_OBJ;
+		if (rel.equals("dep"))
+			mask |= DEP;
+		if (rel.contains("conj"))
+			mask |= CONJ;
+		return mask;
+	}
+}
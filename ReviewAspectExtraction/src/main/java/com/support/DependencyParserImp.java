@@ -4,6 +4,7 @@ package com.support;
 
 
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.io.StringReader;
@@ -17,7 +18,10 @@ import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.HasWord;
 import edu.stanford.nlp.ling.Sentence;
 import edu.stanford.nlp.trees.*;
+import edu.stanford.nlp.parser.common.ParserQuery;
+import edu.stanford.nlp.parser.common.ParserUtils;
 import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
 
 public class DependencyParserImp {
 
@@ -43,4 +47,79 @@ public class DependencyParserImp {
     List<TypedDependency> tdl1 = gs1.typedDependenciesCCprocessed();
     return tdl1.toString();
   }
+
+  /**
+   * parse runs the parser like demoAPI but returns the dependencies as a
+   * DependencyGraph built straight from the TypedDependency objects, so
+   * nothing has to be printed and scanned back. ccProcessed selects the
+   * CC-processed dependencies (what demoAPI returns) instead of the basic
+   * ones; ruleRelationsOnly drops every relation the extraction rules never
+   * look at (everything but amod, nsubj, dobj, dep and conj*).
+   */
+  public static DependencyGraph parse(LexicalizedParser lp, String sent[], boolean ccProcessed,
+      boolean ruleRelationsOnly) {
+    return parse(lp, sent, ccProcessed, ruleRelationsOnly, null);
+  }
+
+  /**
+   * Like parse, within the limits of budget (none when null). Returns null
+   * when the sentence is too long, the parse runs out of time or the parser
+   * runs out of memory; the budget counts each case.
+   */
+  public static DependencyGraph parse(LexicalizedParser lp, String sent[], boolean ccProcessed,
+      boolean ruleRelationsOnly, ParseBudget budget) {
+    if (budget != null && !budget.admits(sent.length))
+      return null;
+    List<CoreLabel> rawWords = Sentence.toCoreLabelList(sent);
+    Tree parse = null;
+    ParserQuery pq = lp.parserQuery();
+    ParseBudget.Deadline deadline = budget != null ? budget.start() : null;
+    try {
+      if (pq.parse(rawWords))
+        parse = pq.getBestParse();
+    } catch (RuntimeInterruptedException e) {
+      if (deadline == null || !deadline.finish())
+        throw e;
+      budget.countTimedOut();
+      return null;
+    } catch (Exception e) {
+      // what LexicalizedParser.apply does: report and fall through to a flat (X ...) tree
+      System.err.println("Following exception caught during parsing:");
+      e.printStackTrace();
+    } finally {
+      if (deadline != null)
+        deadline.finish();
+    }
+    if (parse == null) {
+      if (budget != null && pq.parseNoMemory()) {
+        budget.countOutOfMemory();
+        return null;
+      }
+      parse = ParserUtils.xTree(rawWords);
+    }
+    if (budget != null)
+      budget.countParsed();
+    GrammaticalStructure gs = lp.treebankLanguagePack().grammaticalStructureFactory().newGrammaticalStructure(parse);
+    Collection<TypedDependency> tdl = ccProcessed ? gs.typedDependenciesCCprocessed() : gs.typedDependencies();
+
+    short relation[] = new short[tdl.size()];
+    int governor[] = new int[tdl.size()];
+    int dependent[] = new int[tdl.size()];
+    int n = 0;
+    for (TypedDependency td : tdl) {
+      short rel = DependencyGraph.relationId(td.reln().toString());
+      if (ruleRelationsOnly && DependencyGraph.relationMask(rel) == 0)
+        continue;
+      relation[n] = rel;
+      governor[n] = td.gov().index() - 1; // ROOT has index 0
+      dependent[n] = td.dep().index() - 1;
+      n++;
+    }
+    if (n < relation.length) {
+      relation = Arrays.copyOf(relation, n);
+      governor = Arrays.copyOf(governor, n);
+      dependent = Arrays.copyOf(dependent, n);
+    }
+    return new DependencyGraph(relation, governor, dependent);
+  }
 }
@@ -0,0 +1,182 @@
+package com.support;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What one {@link ReviewAspectExtractor} run found: the annotated aspects
+ * with their polarity, the final features and the dictionaries behind
+ * them, each in the order it was built. {@link #writeTo(File)} writes the
+ * files of the command line (annote.txt, FinalFeature.txt, opine3.txt,
+ * initialFeatures.txt and Freq_Feature.txt).
+ */
+public class ExtractionResult {
+
+	/** One reviewId@aspect@polarity line of annote.txt. */
+	public static class Annotation {
+
+		private final int reviewId;
+		private final String aspect;
+		private final int polarity;
+
+		public Annotation(int reviewId, String aspect, int polarity) {
+			this.reviewId = reviewId;
+			this.aspect = aspect;
+			this.polarity = polarity;
+		}
+
+		public int getReviewId() {
+			return reviewId;
+		}
+
+		public String getAspect() {
+			return aspect;
+		}
+
+		/** 1 for positive, -1 for negative. */
+		public int getPolarity() {
+			return polarity;
+		}
+
+		public String toString() {
+			return reviewId + "@" + aspect + "@" + polarity;
+		}
+	}
+
+	private final SymbolTable symbols;
+	private final IntIntMap opDict;
+	private final IntIntMap features;
+	private final IntIntMap featureFreq;
+	private final List<String> finalFeatures;
+	private final AnnotationStore annote;
+	/** Indices into annote of the annotations whose aspect is a final feature. */
+	private final int[] kept;
+	private final int iterations;
+	private final int reviews;
+	private final int sentences;
+	private final ExtractionSnapshot snapshot;
+
+	ExtractionResult(SymbolTable symbols, IntIntMap opDict, IntIntMap features, IntIntMap featureFreq,
+			List<String> finalFeatures, AnnotationStore annote, int[] kept, int iterations, int reviews,
+			int sentences, ExtractionSnapshot snapshot) {
+		this.symbols = symbols;
+		this.opDict = opDict;
+		this.features = features;
+		this.featureFreq = featureFreq;
+		this.finalFeatures = Collections.unmodifiableList(finalFeatures);
+		this.annote = annote;
+		this.kept = kept;
+		this.iterations = iterations;
+		this.reviews = reviews;
+		this.sentences = sentences;
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * The annotations whose aspect is a final feature (annote.txt), as a
+	 * read-only view that builds each one when it is read.
+	 */
+	public List<Annotation> getAnnotations() {
+		return new AbstractList<Annotation>() {
+			public Annotation get(int index) {
+				int a = kept[index];
+				return new Annotation(annote.reviewId(a), annote.aspect(a), annote.polarity(a));
+			}
+
+			public int size() {
+				return kept.length;
+			}
+		};
+	}
+
+	/** The counted features without sentence punctuation (FinalFeature.txt). */
+	public List<String> getFinalFeatures() {
+		return finalFeatures;
+	}
+
+	/** The seed lexicon with the learned opinion words, to their polarity (opine3.txt). */
+	public Map<String, Integer> getOpinionWords() {
+		return toMap(opDict);
+	}
+
+	/** The features the rules found, to the number of times they were found (initialFeatures.txt). */
+	public Map<String, Integer> getFeatures() {
+		return toMap(features);
+	}
+
+	/** All features, the adjective-noun ones included, to their frequency (Freq_Feature.txt). */
+	public Map<String, Integer> getFeatureFrequencies() {
+		return toMap(featureFreq);
+	}
+
+	/** Fixpoint iterations run, the last one adding nothing. */
+	public int getIterations() {
+		return iterations;
+	}
+
+	public int getReviewCount() {
+		return reviews;
+	}
+
+	public int getSentenceCount() {
+		return sentences;
+	}
+
+	/**
+	 * The learned state, from which later reviews can be added; null for
+	 * reviews extracted in memory, which have no store to resume from.
+	 */
+	public ExtractionSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	private Map<String, Integer> toMap(IntIntMap map) {
+		Map<String, Integer> named = new LinkedHashMap<String, Integer>();
+		for (int i = 0; i < map.size(); i++)
+			named.put(symbols.name(map.keyAt(i)), map.valueAt(i));
+		return named;
+	}
+
+	/** Writes the five output files into dir, replacing them. */
+	public void writeTo(File dir) throws IOException {
+		write(new File(dir, "initialFeatures.txt"), features);
+		write(new File(dir, "Freq_Feature.txt"), featureFreq);
+		write(new File(dir, "opine3.txt"), opDict);
+		write(new File(dir, "FinalFeature.txt"), finalFeatures);
+		// streamed from the store, one line at a time
+		BufferedWriter bw = new BufferedWriter(new FileWriter(new File(dir, "annote.txt")));
+		try {
+			for (int a : kept)
+				bw.write(annote.format(a) + "\r\n");
+		} finally {
+			bw.close();
+		}
+	}
+
+	private void write(File file, IntIntMap map) throws IOException {
+		BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+		try {
+			for (int i = 0; i < map.size(); i++)
+				bw.write(symbols.name(map.keyAt(i)) + ":" + map.valueAt(i) + "\r\n");
+		} finally {
+			bw.close();
+		}
+	}
+
+	private static void write(File file, List<String> lines) throws IOException {
+		BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+		try {
+			for (String line : lines)
+				bw.write(line + "\r\n");
+		} finally {
+			bw.close();
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package com.support;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The state learned by an extraction at convergence, so that reviews
+ * arriving later can be added with
+ * {@link ReviewAspectExtractor#extract(ExtractionSnapshot, File, File)}
+ * instead of running everything again: the corpus it covers (one segment
+ * per review file, each with its {@link ParsedCorpusStore}), the expanded
+ * opinion dictionary, the features of the fixpoint with their counts, the
+ * adjective-noun features with the sentence that introduced them, the
+ * frequency of every feature and the annotations, those of the fixpoint
+ * and those of the adjective-noun pattern kept apart.
+ *
+ * Words and aspects are written by name, so a snapshot can be read into
+ * any {@link SymbolTable}. The stores it names must be kept; they are
+ * checked against the review files they were written from as those were
+ * then, so a review file may be replaced once it is in a snapshot.
+ *
+ * Layout (big-endian, strings in modified UTF-8): magic, version,
+ * dependency flags, normalizer fingerprint, the segments, then the
+ * dictionaries and annotation lists, each preceded by its size.
+ */
+public class ExtractionSnapshot {
+
+	private static final int MAGIC = 0x52414553; // "RAES"
+	private static final int VERSION = 1;
+
+	/** One review file of the corpus and the store of its analyzed reviews. */
+	public static class Segment {
+
+		private final File store;
+		private final String source;
+		private final long sourceLength;
+		private final long sourceModified;
+		private final int firstReviewId;
+		private final int lines;
+		private final int firstSentence;
+		private final int sentences;
+
+		Segment(File store, String source, long sourceLength, long sourceModified, int firstReviewId, int lines,
+				int firstSentence, int sentences) {
+			this.store = store;
+			this.source = source;
+			this.sourceLength = sourceLength;
+			this.sourceModified = sourceModified;
+			this.firstReviewId = firstReviewId;
+			this.lines = lines;
+			this.firstSentence = firstSentence;
+			this.sentences = sentences;
+		}
+
+		public File getStore() {
+			return store;
+		}
+
+		/** The review file, as it was named when the segment was added. */
+		public String getSource() {
+			return source;
+		}
+
+		/** Review id of the first line of the file; the ids continue over the segments. */
+		public int getFirstReviewId() {
+			return firstReviewId;
+		}
+
+		/** Lines of the file, malformed ones included. */
+		public int getLines() {
+			return lines;
+		}
+
+		/** Number of the first sentence of the file within the whole corpus. */
+		public int getFirstSentence() {
+			return firstSentence;
+		}
+
+		public int getSentences() {
+			return sentences;
+		}
+
+		/** Maps the store, or returns null when it is missing or was rebuilt since. */
+		ParsedCorpusStore open(int dependencyFlags, int normalization, DependencyBackend backend,
+				SentenceCache cache) throws IOException {
+			return ParsedCorpusStore.open(store, sourceLength, sourceModified, dependencyFlags, normalization,
+					backend, cache);
+		}
+	}
+
+	final SymbolTable symbols;
+	final int dependencyFlags;
+	final int normalization;
+	final List<Segment> segments;
+	final IntIntMap opDict;
+	/** Features of the fixpoint to their value, as in initialFeatures.txt. */
+	final IntIntMap features;
+	/** Adjective-noun features that are not fixpoint features, to the sentence that introduced them. */
+	final IntIntMap patternFeatures;
+	/** Every feature of both maps to its frequency, zeros included. */
+	final IntIntMap frequencies;
+	final AnnotationStore annotations;
+	/** Annotations of the adjective-noun pattern, in corpus order. */
+	final AnnotationStore patternAnnotations;
+
+	ExtractionSnapshot(SymbolTable symbols, int dependencyFlags, int normalization, List<Segment> segments,
+			IntIntMap opDict, IntIntMap features, IntIntMap patternFeatures, IntIntMap frequencies,
+			AnnotationStore annotations, AnnotationStore patternAnnotations) {
+		this.symbols = symbols;
+		this.dependencyFlags = dependencyFlags;
+		this.normalization = normalization;
+		this.segments = Collections.unmodifiableList(new ArrayList<Segment>(segments));
+		this.opDict = opDict;
+		this.features = features;
+		this.patternFeatures = patternFeatures;
+		this.frequencies = frequencies;
+		this.annotations = annotations;
+		this.patternAnnotations = patternAnnotations;
+	}
+
+	public List<Segment> getSegments() {
+		return segments;
+	}
+
+	/** The id the first review of the next review file gets. */
+	public int getNextReviewId() {
+		Segment last = segments.get(segments.size() - 1);
+		return last.firstReviewId + last.lines;
+	}
+
+	public int getSentenceCount() {
+		Segment last = segments.get(segments.size() - 1);
+		return last.firstSentence + last.sentences;
+	}
+
+	public int getOpinionWordCount() {
+		return opDict.size();
+	}
+
+	public int getFeatureCount() {
+		return features.size() + patternFeatures.size();
+	}
+
+	public int getAnnotationCount() {
+		return annotations.size() + patternAnnotations.size();
+	}
+
+	/** Writes the snapshot through a temporary file, so that the old one stays intact until the new one is complete. */
+	public void write(File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(dependencyFlags);
+			out.writeInt(normalization);
+			out.writeInt(segments.size());
+			for (Segment segment : segments) {
+				out.writeUTF(segment.store.getPath());
+				out.writeUTF(segment.source);
+				out.writeLong(segment.sourceLength);
+				out.writeLong(segment.sourceModified);
+				out.writeInt(segment.firstReviewId);
+				out.writeInt(segment.lines);
+				out.writeInt(segment.firstSentence);
+				out.writeInt(segment.sentences);
+			}
+			write(out, opDict);
+			write(out, features);
+			write(out, patternFeatures);
+			write(out, frequencies);
+			write(out, annotations);
+			write(out, patternAnnotations);
+		} finally {
+			out.close();
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void write(DataOutputStream out, IntIntMap map) throws IOException {
+		out.writeInt(map.size());
+		for (int i = 0; i < map.size(); i++) {
+			out.writeUTF(symbols.name(map.keyAt(i)));
+			out.writeInt(map.valueAt(i));
+		}
+	}
+
+	private static void write(DataOutputStream out, AnnotationStore annote) throws IOException {
+		out.writeInt(annote.size());
+		for (int i = 0; i < annote.size(); i++) {
+			out.writeInt(annote.reviewId(i));
+			out.writeUTF(annote.aspect(i));
+			out.writeByte(annote.polarity(i));
+		}
+	}
+
+	/** Reads a snapshot written by {@link #write(File)}, interning its words in symbols. */
+	public static ExtractionSnapshot read(File file, SymbolTable symbols) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException(file + " is not a snapshot of this version");
+			int dependencyFlags = in.readInt();
+			int normalization = in.readInt();
+			List<Segment> segments = new ArrayList<Segment>();
+			for (int n = in.readInt(); n > 0; n--)
+				segments.add(new Segment(new File(in.readUTF()), in.readUTF(), in.readLong(), in.readLong(),
+						in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+			IntIntMap opDict = readMap(in, symbols);
+			IntIntMap features = readMap(in, symbols);
+			IntIntMap patternFeatures = readMap(in, symbols);
+			IntIntMap frequencies = readMap(in, symbols);
+			AnnotationStore annotations = readAnnotations(in, symbols);
+			AnnotationStore patternAnnotations = readAnnotations(in, symbols);
+			return new ExtractionSnapshot(symbols, dependencyFlags, normalization, segments, opDict, features,
+					patternFeatures, frequencies, annotations, patternAnnotations);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static IntIntMap readMap(DataInputStream in, SymbolTable symbols) throws IOException {
+		int n = in.readInt();
+		IntIntMap map = new IntIntMap(n);
+		for (int i = 0; i < n; i++)
+			map.put(symbols.intern(in.readUTF()), in.readInt());
+		return map;
+	}
+
+	private static AnnotationStore readAnnotations(DataInputStream in, SymbolTable symbols) throws IOException {
+		AnnotationStore annote = new AnnotationStore(symbols);
+		for (int n = in.readInt(); n > 0; n--) {
+			int reviewId = in.readInt();
+			annote.add(reviewId, symbols.intern(in.readUTF()), in.readByte());
+		}
+		return annote;
+	}
+}
@@ -0,0 +1,194 @@
+package com.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Token-level Aho-Corasick automaton over a fixed set of features, so that
+ * all occurrences of all features in a sentence are found in one scan of
+ * its tokens. Tokens are {@link SymbolTable} ids of the lower-cased words
+ * (see {@link AnalyzedSentence#getWordIds(SymbolTable)}), so matching
+ * ignores case. Single-word features are reported per occurrence and
+ * multi-word features once per sentence, as the frequency pass counts them.
+ */
+public class FeatureMatcher {
+
+	private final String[] features;
+	private final boolean[] phrase;
+	/** Symbol ids of the tokens of the features. */
+	private final IntIntMap vocabulary = new IntIntMap();
+	/** Trie edges keyed by (state << 32 | token id), open addressing; the next state + 1, 0 for an empty slot. */
+	private long[] edgeKeys = new long[64];
+	private int[] edgeTargets = new int[64];
+	private int edges;
+	private int[] fail;
+	private int[][] output;
+
+	/** Features whose tokens were never interned in symbols cannot occur and are never reported. */
+	public FeatureMatcher(SymbolTable symbols, Collection<String> featureSet) {
+		features = featureSet.toArray(new String[featureSet.size()]);
+		phrase = new boolean[features.length];
+		List<List<Integer>> found = new ArrayList<List<Integer>>();
+		List<int[]> trie = new ArrayList<int[]>();
+		found.add(new ArrayList<Integer>(1));
+		for (int f = 0; f < features.length; f++) {
+			String tokens[] = features[f].toLowerCase().split(" ");
+			phrase[f] = tokens.length > 1;
+			int state = 0;
+			for (String token : tokens) {
+				int id = symbols.lookup(token);
+				if (id == SymbolTable.NONE) {
+					state = -1;
+					break;
+				}
+				vocabulary.put(id, 1);
+				int next = next(state, id);
+				if (next < 0) {
+					next = found.size();
+					found.add(new ArrayList<Integer>(1));
+					addEdge(state, id, next);
+					trie.add(new int[] { state, id, next });
+				}
+				state = next;
+			}
+			if (state >= 0)
+				found.get(state).add(f);
+		}
+		buildFailureLinks(found, trie);
+	}
+
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32) & mask;
+	}
+
+	/** The state reached from state with the token, or -1 when there is no edge. */
+	private int next(int state, int token) {
+		long key = ((long) state << 32) | token;
+		int mask = edgeKeys.length - 1;
+		for (int slot = slot(key, mask);; slot = (slot + 1) & mask) {
+			if (edgeTargets[slot] == 0)
+				return -1;
+			if (edgeKeys[slot] == key)
+				return edgeTargets[slot] - 1;
+		}
+	}
+
+	private void addEdge(int state, int token, int target) {
+		if ((edges + 1) * 2 > edgeKeys.length) {
+			long keys[] = edgeKeys;
+			int targets[] = edgeTargets;
+			edgeKeys = new long[keys.length * 2];
+			edgeTargets = new int[keys.length * 2];
+			for (int i = 0; i < keys.length; i++)
+				if (targets[i] != 0)
+					put(keys[i], targets[i]);
+		}
+		put(((long) state << 32) | token, target + 1);
+		edges++;
+	}
+
+	private void put(long key, int value) {
+		int mask = edgeKeys.length - 1;
+		int slot = slot(key, mask);
+		while (edgeTargets[slot] != 0)
+			slot = (slot + 1) & mask;
+		edgeKeys[slot] = key;
+		edgeTargets[slot] = value;
+	}
+
+	/** Breadth-first over the trie; each state also reports the features of its failure state. */
+	private void buildFailureLinks(List<List<Integer>> found, List<int[]> trie) {
+		int states = found.size();
+		fail = new int[states];
+		output = new int[states][];
+		List<List<int[]>> children = new ArrayList<List<int[]>>(states);
+		for (int s = 0; s < states; s++)
+			children.add(new ArrayList<int[]>(1));
+		for (int[] edge : trie)
+			children.get(edge[0]).add(new int[] { edge[1], edge[2] });
+		int queue[] = new int[states];
+		int head = 0, tail = 0;
+		output[0] = new int[0];
+		for (int[] child : children.get(0)) {
+			fail[child[1]] = 0;
+			queue[tail++] = child[1];
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			output[state] = concat(toArray(found.get(state)), output[fail[state]]);
+			for (int[] child : children.get(state)) {
+				int f = fail[state];
+				int next = next(f, child[0]);
+				while (next < 0 && f != 0) {
+					f = fail[f];
+					next = next(f, child[0]);
+				}
+				fail[child[1]] = next < 0 ? 0 : next;
+				queue[tail++] = child[1];
+			}
+		}
+	}
+
+	private static int[] toArray(List<Integer> values) {
+		int array[] = new int[values.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = values.get(i);
+		return array;
+	}
+
+	private static int[] concat(int[] a, int[] b) {
+		if (b.length == 0)
+			return a;
+		int c[] = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, c, a.length, b.length);
+		return c;
+	}
+
+	public int size() {
+		return features.length;
+	}
+
+	public String feature(int id) {
+		return features[id];
+	}
+
+	/**
+	 * Ids of the features found in the sentence, given as the symbol ids of
+	 * its words; see the class comment for repetitions.
+	 */
+	public int[] match(int[] wordId) {
+		int hits[] = new int[4];
+		int count = 0;
+		int state = 0;
+		for (int token : wordId) {
+			if (!vocabulary.containsKey(token)) {
+				state = 0;
+				continue;
+			}
+			int next = next(state, token);
+			while (next < 0 && state != 0) {
+				state = fail[state];
+				next = next(state, token);
+			}
+			state = next < 0 ? 0 : next;
+			for (int f : output[state]) {
+				if (phrase[f] && contains(hits, count, f))
+					continue;
+				if (count == hits.length)
+					hits = Arrays.copyOf(hits, count * 2);
+				hits[count++] = f;
+			}
+		}
+		return Arrays.copyOf(hits, count);
+	}
+
+	private static boolean contains(int[] values, int count, int value) {
+		for (int i = 0; i < count; i++)
+			if (values[i] == value)
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,47 @@
+package com.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the final features from the counted ones (features containing
+ * sentence punctuation are dropped) and keeps the annotations whose aspect
+ * is a final feature. The join is on {@link SymbolTable} ids.
+ */
+public class FinalFeatureFilter {
+
+	private final List<String> finalFeatures = new ArrayList<String>();
+	/** The final features' ids; sized by the features of the run, not by the whole symbol table. */
+	private final IntIntMap keep;
+
+	public FinalFeatureFilter(SymbolTable symbols, IntIntMap featureFreq) {
+		keep = new IntIntMap(featureFreq.size());
+		for (int f = 0; f < featureFreq.size(); f++) {
+			String key = symbols.name(featureFreq.keyAt(f));
+			if (!key.contains(".") && !key.contains("?") && !key.contains("!") && featureFreq.valueAt(f) >= 0) {
+				finalFeatures.add(key);
+				keep.put(featureFreq.keyAt(f), 1);
+			}
+		}
+	}
+
+	/** The final features, in the order of the counted features. */
+	public List<String> getFinalFeatures() {
+		return finalFeatures;
+	}
+
+	public boolean isFinal(int aspectId) {
+		return keep.containsKey(aspectId);
+	}
+
+	/** Indices of the annotations whose aspect is a final feature, in annotation order. */
+	public int[] filter(AnnotationStore annote) {
+		int kept[] = new int[annote.size()];
+		int n = 0;
+		for (int a = 0; a < annote.size(); a++)
+			if (isFinal(annote.aspectId(a)))
+				kept[n++] = a;
+		return Arrays.copyOf(kept, n);
+	}
+}
@@ -0,0 +1,128 @@
+package com.support;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The pass that follows the fixpoint. First every adjective directly
+ * followed by a noun (or two nouns) adds that noun (phrase) as a feature,
+ * annotated with the adjective's polarity; then every feature is counted
+ * over the corpus in one scan per sentence, each from the sentence that
+ * introduced it on.
+ *
+ * Both scans must see the corpus in the same order.
+ */
+public class FrequencyPass {
+
+	private final SymbolTable symbols;
+	private final NegationScope negation;
+	private final TraceSink trace;
+	/** Position (in corpus order) of the sentence that introduced a pattern feature. */
+	private final IntIntMap addedAt = new IntIntMap();
+
+	/** trace receives the sentences and annotations of the sampled reviews, or null. */
+	public FrequencyPass(SymbolTable symbols, NegationScope negation, TraceSink trace) {
+		this.symbols = symbols;
+		this.negation = negation;
+		this.trace = trace;
+	}
+
+	/** Adds the adjective-noun features to feature and their annotations to annote. */
+	public void addPatternFeatures(Iterable<AnalyzedReview> corpus, IntIntMap opDict, IntIntMap feature,
+			AnnotationStore annote) {
+		int sentenceNo = 0;
+		for (AnalyzedReview review : corpus)
+			sentenceNo = addPatternFeatures(review, sentenceNo, opDict, feature, annote);
+	}
+
+	/**
+	 * The same for one review whose first sentence is number sentenceNo of
+	 * the corpus; returns the number of the sentence after it.
+	 */
+	public int addPatternFeatures(AnalyzedReview review, int sentenceNo, IntIntMap opDict, IntIntMap feature,
+			AnnotationStore annote) {
+		int reviewid = review.getReviewId();
+		// the polarity carries over from one match to the next within a review
+		int val = review.getPolarity();
+		boolean traced = trace != null && trace.isSampled(reviewid);
+		for (AnalyzedSentence analyzed : review.getSentences()) {
+			if (traced)
+				trace.trace("Review Sentence=" + analyzed.getSentence());
+			byte tagMask[] = analyzed.getTagMasks();
+			int wordId[] = analyzed.getWordIds(symbols);
+			BitSet negated = negation.scope(wordId);
+			for (int var = 0; var < wordId.length - 2; var++) {
+				if ((tagMask[var] & PosTags.ADJ) == 0 || (tagMask[var + 1] & PosTags.NOUN) == 0)
+					continue;
+				int newFeatureWord = wordId[var + 1];
+				if (opDict.containsKey(wordId[var]))
+					val = opDict.get(wordId[var], 0);
+				val *= NegationScope.polarity(negated, var);
+				if ((tagMask[var + 2] & PosTags.NOUN) != 0)
+					newFeatureWord = symbols.phrase(newFeatureWord, wordId[var + 2]);
+				if (feature.containsKey(newFeatureWord))
+					feature.add(newFeatureWord, 1);
+				else {
+					feature.put(newFeatureWord, 1);
+					addedAt.put(newFeatureWord, sentenceNo);
+				}
+				if (traced)
+					trace.trace(reviewid + "@" + symbols.name(newFeatureWord) + "@" + val);
+				annote.add(reviewid, newFeatureWord, val);
+			}
+			sentenceNo++;
+		}
+		return sentenceNo;
+	}
+
+	/** The sentence that introduced a pattern feature, 0 for the other features. */
+	public int addedAt(int featureId) {
+		return addedAt.get(featureId, 0);
+	}
+
+	/** Restores where a pattern feature found earlier was introduced. */
+	public void setAddedAt(int featureId, int sentenceNo) {
+		addedAt.put(featureId, sentenceNo);
+	}
+
+	/**
+	 * Occurrences of every feature over the corpus (a multi-word feature at
+	 * most once per sentence), counted from the sentence that introduced it.
+	 * Features that never occur are left out; the others keep the order of
+	 * feature.
+	 */
+	public IntIntMap count(Iterable<AnalyzedReview> corpus, IntIntMap feature) {
+		int freq[] = count(corpus, 0, feature);
+		IntIntMap featureFreq = new IntIntMap(freq.length);
+		for (int f = 0; f < freq.length; f++)
+			if (freq[f] > 0)
+				featureFreq.put(feature.keyAt(f), freq[f]);
+		return featureFreq;
+	}
+
+	/**
+	 * Occurrences of every feature, in the order of feature and zeros
+	 * included, over reviews whose first sentence is number firstSentence of
+	 * the corpus and whose sentences follow each other without a gap.
+	 */
+	public int[] count(Iterable<AnalyzedReview> corpus, int firstSentence, IntIntMap feature) {
+		List<String> featureNames = new ArrayList<String>(feature.size());
+		for (int f = 0; f < feature.size(); f++)
+			featureNames.add(symbols.name(feature.keyAt(f)));
+		FeatureMatcher matcher = new FeatureMatcher(symbols, featureNames);
+		int since[] = new int[matcher.size()];
+		int freq[] = new int[matcher.size()];
+		for (int f = 0; f < matcher.size(); f++)
+			since[f] = addedAt.get(feature.keyAt(f), 0);
+		int sentenceNo = firstSentence;
+		for (AnalyzedReview review : corpus)
+			for (AnalyzedSentence analyzed : review.getSentences()) {
+				for (int f : matcher.match(analyzed.getWordIds(symbols)))
+					if (since[f] <= sentenceNo)
+						freq[f]++;
+				sentenceNo++;
+			}
+		return freq;
+	}
+}
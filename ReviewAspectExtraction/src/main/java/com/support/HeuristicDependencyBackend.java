@@ -0,0 +1,209 @@
+package com.support;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Derives the relations the rules use from POS patterns alone, in a few
+ * linear scans over the sentence and without any model besides the tagger:
+ * <ul>
+ * <li>amod: adjectives (possibly coordinated) in front of a noun group,
+ * attached to the last noun of the group;</li>
+ * <li>nsubj: the noun group right before a verb group; with a copula
+ * ("is", "looks", ...) the subject attaches to the predicate adjective or
+ * noun, otherwise to the last verb;</li>
+ * <li>dobj: the first noun group after a non-copular verb group;</li>
+ * <li>conj: two adjectives or two noun groups joined by "and", "or", "but",
+ * "nor" or a comma.</li>
+ * </ul>
+ * Coordinated subjects and predicate adjectives share the nsubj edge, as in
+ * the CC-processed Stanford dependencies. No "dep" edges are produced.
+ *
+ * Much less precise than {@link PcfgDependencyBackend}, but orders of
+ * magnitude faster.
+ */
+public class HeuristicDependencyBackend implements DependencyBackend {
+
+	public static final String NAME = "heuristic";
+
+	private static final Set<String> COPULAS = new HashSet<String>(Arrays.asList("be", "is", "are", "was", "were",
+			"am", "been", "being", "'s", "'re", "'m", "seem", "seems", "seemed", "look", "looks", "looked", "feel",
+			"feels", "felt", "sound", "sounds", "sounded", "become", "becomes", "became", "remain", "remains"));
+	private static final Set<String> CONJUNCTIONS = new HashSet<String>(Arrays.asList("and", "or", "but", "nor"));
+
+	private final short amod = DependencyGraph.relationId("amod");
+	private final short nsubj = DependencyGraph.relationId("nsubj");
+	private final short dobj = DependencyGraph.relationId("dobj");
+	private final short conj = DependencyGraph.relationId("conj");
+
+	public String getName() {
+		return NAME;
+	}
+
+	public int getFlags() {
+		return SentenceAnalyzer.HEURISTIC_DEPENDENCIES;
+	}
+
+	public DependencyGraph parse(String[] word, byte[] tags) {
+		int n = word.length;
+		int mask[] = new int[n];
+		String lower[] = new String[n];
+		for (int i = 0; i < n; i++) {
+			mask[i] = i < tags.length ? PosTags.mask(tags[i]) : 0;
+			lower[i] = word[i].toLowerCase();
+		}
+		// head[i]: the last noun of the noun group token i belongs to, -1 outside noun groups
+		int head[] = new int[n];
+		for (int i = n - 1; i >= 0; i--)
+			head[i] = (mask[i] & PosTags.NOUN) == 0 ? -1 : i + 1 < n && head[i + 1] >= 0 ? head[i + 1] : i;
+		Edges edges = new Edges();
+
+		// amod: adjectives in front of a noun group, over adverbs and between-adjective coordination
+		for (int s = 0; s < n; s++) {
+			if (head[s] < 0 || (s > 0 && head[s - 1] >= 0))
+				continue;
+			for (int j = s - 1; j >= 0; j--) {
+				if ((mask[j] & PosTags.ADJ) != 0)
+					edges.add(amod, head[s], j);
+				else if ((mask[j] & PosTags.ADV) != 0)
+					continue;
+				else if (!isCoordination(lower[j]) || j == 0 || (mask[j - 1] & PosTags.ADJ) == 0
+						|| (mask[j + 1] & PosTags.ADJ) == 0)
+					break;
+			}
+		}
+
+		// nsubj and dobj around every verb group (verbs, modals and the adverbs between them)
+		for (int v = 0; v < n; v++) {
+			if ((mask[v] & PosTags.VERB) == 0 || (v > 0 && (mask[v - 1] & PosTags.VERB) != 0))
+				continue;
+			int last = v;
+			for (int j = v + 1; j < n && (mask[j] & (PosTags.VERB | PosTags.ADV)) != 0; j++)
+				if ((mask[j] & PosTags.VERB) != 0)
+					last = j;
+			int subjects[] = v > 0 && head[v - 1] >= 0 ? coordinatedHeads(v - 1, mask, lower, head) : new int[0];
+			int next = last + 1;
+			while (next < n && (mask[next] & PosTags.ADV) != 0)
+				next++;
+			if (COPULAS.contains(lower[last])) {
+				int predicates[];
+				if (next < n && (mask[next] & PosTags.ADJ) != 0)
+					predicates = coordinatedAdjectives(next, mask, lower);
+				else {
+					int object = objectHead(next, mask, head);
+					predicates = object < 0 ? new int[0] : new int[] { object };
+				}
+				for (int predicate : predicates)
+					for (int subject : subjects)
+						edges.add(nsubj, predicate, subject);
+			} else {
+				for (int subject : subjects)
+					edges.add(nsubj, last, subject);
+				int object = objectHead(next, mask, head);
+				if (object >= 0)
+					for (int o : coordinatedObjects(object, mask, lower, head))
+						edges.add(dobj, last, o);
+			}
+			v = last;
+		}
+
+		// conj between adjectives and between noun groups
+		for (int i = 1; i + 1 < n; i++) {
+			if (!isCoordination(lower[i]))
+				continue;
+			int right = i + 1;
+			while (right + 1 < n && (mask[right] & PosTags.ADV) != 0)
+				right++;
+			if ((mask[i - 1] & PosTags.ADJ) != 0 && (mask[right] & PosTags.ADJ) != 0)
+				edges.add(conj, i - 1, right);
+			else if (head[i - 1] >= 0 && head[i + 1] >= 0)
+				edges.add(conj, head[i - 1], head[i + 1]);
+		}
+		return edges.toGraph();
+	}
+
+	private static boolean isCoordination(String lower) {
+		return CONJUNCTIONS.contains(lower) || lower.equals(",");
+	}
+
+	/** The noun group ending at end and the noun groups coordinated with it on its left. */
+	private static int[] coordinatedHeads(int end, int[] mask, String[] lower, int[] head) {
+		int heads[] = { head[end] };
+		for (int j = end; j >= 0 && head[j] >= 0;) {
+			int start = j;
+			while (start > 0 && head[start - 1] >= 0)
+				start--;
+			if (start < 2 || !isCoordination(lower[start - 1]) || head[start - 2] < 0)
+				break;
+			heads = Arrays.copyOf(heads, heads.length + 1);
+			heads[heads.length - 1] = head[start - 2];
+			j = start - 2;
+		}
+		return heads;
+	}
+
+	/** The adjective at first and the adjectives coordinated with it on its right. */
+	private static int[] coordinatedAdjectives(int first, int[] mask, String[] lower) {
+		int adjectives[] = { first };
+		for (int j = first + 1; j + 1 < mask.length && isCoordination(lower[j]);) {
+			int next = j + 1;
+			while (next + 1 < mask.length && (mask[next] & PosTags.ADV) != 0)
+				next++;
+			if ((mask[next] & PosTags.ADJ) == 0)
+				break;
+			adjectives = Arrays.copyOf(adjectives, adjectives.length + 1);
+			adjectives[adjectives.length - 1] = next;
+			j = next + 1;
+		}
+		return adjectives;
+	}
+
+	/** The head of the object noun group starting after determiners and modifiers at from, or -1. */
+	private static int objectHead(int from, int[] mask, int[] head) {
+		int j = from;
+		while (j < mask.length && (mask[j] & (PosTags.DET | PosTags.ADJ | PosTags.ADV)) != 0)
+			j++;
+		return j < mask.length ? head[j] : -1;
+	}
+
+	/** The object head and the noun groups coordinated with it on its right. */
+	private static int[] coordinatedObjects(int object, int[] mask, String[] lower, int[] head) {
+		int heads[] = { object };
+		for (int j = object + 1; j < mask.length && isCoordination(lower[j]);) {
+			int next = objectHead(j + 1, mask, head);
+			if (next < 0)
+				break;
+			heads = Arrays.copyOf(heads, heads.length + 1);
+			heads[heads.length - 1] = next;
+			j = next + 1;
+		}
+		return heads;
+	}
+
+	/** Growing parallel edge arrays. */
+	private static class Edges {
+
+		private short[] relation = new short[16];
+		private int[] governor = new int[16];
+		private int[] dependent = new int[16];
+		private int size;
+
+		void add(short rel, int gov, int dep) {
+			if (size == relation.length) {
+				relation = Arrays.copyOf(relation, size * 2);
+				governor = Arrays.copyOf(governor, size * 2);
+				dependent = Arrays.copyOf(dependent, size * 2);
+			}
+			relation[size] = rel;
+			governor[size] = gov;
+			dependent[size] = dep;
+			size++;
+		}
+
+		DependencyGraph toGraph() {
+			return new DependencyGraph(Arrays.copyOf(relation, size), Arrays.copyOf(governor, size),
+					Arrays.copyOf(dependent, size));
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.support;
+
+import java.util.Arrays;
+
+/**
+ * Map from non-negative int keys (usually {@link SymbolTable} ids) to int
+ * values without boxing. Entries are kept in insertion order in two
+ * parallel arrays and found through an open-addressing index; entries are
+ * never removed. Iterate with {@link #keyAt(int)} and {@link #valueAt(int)}
+ * for 0 <= i < {@link #size()}.
+ */
+public class IntIntMap {
+
+	private int[] keys;
+	private int[] values;
+	private int size;
+	/** Entry index + 1 per slot, 0 for an empty slot; at most half full. */
+	private int[] slots;
+
+	public IntIntMap() {
+		this(16);
+	}
+
+	public IntIntMap(int expectedSize) {
+		int capacity = Math.max(4, expectedSize);
+		keys = new int[capacity];
+		values = new int[capacity];
+		slots = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+	}
+
+	/** A copy of other, with the entries in the same order. */
+	public IntIntMap(IntIntMap other) {
+		keys = other.keys.clone();
+		values = other.values.clone();
+		size = other.size;
+		slots = other.slots.clone();
+	}
+
+	private int find(int key) {
+		int mask = slots.length - 1;
+		for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+			int entry = slots[slot];
+			if (entry == 0)
+				return -1 - slot;
+			if (keys[entry - 1] == key)
+				return entry - 1;
+		}
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B1;
+		return h ^ (h >>> 16);
+	}
+
+	public boolean containsKey(int key) {
+		return find(key) >= 0;
+	}
+
+	/** The value of the key, or missing when it is absent. */
+	public int get(int key, int missing) {
+		int entry = find(key);
+		return entry >= 0 ? values[entry] : missing;
+	}
+
+	public void put(int key, int value) {
+		int entry = find(key);
+		if (entry >= 0) {
+			values[entry] = value;
+			return;
+		}
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		keys[size] = key;
+		values[size] = value;
+		slots[-1 - entry] = ++size;
+		if (size * 2 > slots.length)
+			rehash();
+	}
+
+	/** Adds delta to the value of the key (0 when absent) and returns the new value. */
+	public int add(int key, int delta) {
+		int value = get(key, 0) + delta;
+		put(key, value);
+		return value;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int entry = 0; entry < size; entry++) {
+			int slot = hash(keys[entry]) & mask;
+			while (slots[slot] != 0)
+				slot = (slot + 1) & mask;
+			slots[slot] = entry + 1;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int keyAt(int index) {
+		return keys[index];
+	}
+
+	public int valueAt(int index) {
+		return values[index];
+	}
+}
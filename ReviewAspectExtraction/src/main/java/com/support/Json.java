@@ -0,0 +1,191 @@
+package com.support;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The little JSON the extraction server needs, without a library: parse()
+ * turns a document into Map (objects, in key order), List, String, Double,
+ * Boolean and null values, and quote() writes a string literal.
+ */
+public class Json {
+
+	private final String text;
+	private int pos;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/** Parses a complete document; throws IllegalArgumentException when it is not valid JSON. */
+	public static Object parse(String text) {
+		Json json = new Json(text);
+		Object value = json.value();
+		json.skipSpace();
+		if (json.pos < text.length())
+			throw json.error("end of input expected");
+		return value;
+	}
+
+	/** The string as a JSON literal, quotes included. */
+	public static String quote(String value) {
+		StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				out.append('\\').append(c);
+			else if (c == '\n')
+				out.append("\\n");
+			else if (c == '\r')
+				out.append("\\r");
+			else if (c == '\t')
+				out.append("\\t");
+			else if (c < 0x20)
+				out.append(String.format("\\u%04x", (int) c));
+			else
+				out.append(c);
+		}
+		return out.append('"').toString();
+	}
+
+	private Object value() {
+		skipSpace();
+		if (pos == text.length())
+			throw error("value expected");
+		char c = text.charAt(pos);
+		if (c == '{')
+			return object();
+		if (c == '[')
+			return array();
+		if (c == '"')
+			return string();
+		if (text.startsWith("true", pos)) {
+			pos += 4;
+			return Boolean.TRUE;
+		}
+		if (text.startsWith("false", pos)) {
+			pos += 5;
+			return Boolean.FALSE;
+		}
+		if (text.startsWith("null", pos)) {
+			pos += 4;
+			return null;
+		}
+		return number();
+	}
+
+	private Map<String, Object> object() {
+		Map<String, Object> object = new LinkedHashMap<String, Object>();
+		pos++;
+		skipSpace();
+		if (next('}'))
+			return object;
+		do {
+			skipSpace();
+			if (pos == text.length() || text.charAt(pos) != '"')
+				throw error("key expected");
+			String key = string();
+			skipSpace();
+			if (!next(':'))
+				throw error("':' expected");
+			object.put(key, value());
+			skipSpace();
+		} while (next(','));
+		if (!next('}'))
+			throw error("',' or '}' expected");
+		return object;
+	}
+
+	private List<Object> array() {
+		List<Object> array = new ArrayList<Object>();
+		pos++;
+		skipSpace();
+		if (next(']'))
+			return array;
+		do {
+			array.add(value());
+			skipSpace();
+		} while (next(','));
+		if (!next(']'))
+			throw error("',' or ']' expected");
+		return array;
+	}
+
+	private String string() {
+		StringBuilder out = new StringBuilder();
+		pos++;
+		while (true) {
+			if (pos >= text.length())
+				throw error("unterminated string");
+			char c = text.charAt(pos++);
+			if (c == '"')
+				return out.toString();
+			if (c != '\\') {
+				out.append(c);
+				continue;
+			}
+			if (pos >= text.length())
+				throw error("unterminated string");
+			c = text.charAt(pos++);
+			switch (c) {
+			case 'b':
+				out.append('\b');
+				break;
+			case 'f':
+				out.append('\f');
+				break;
+			case 'n':
+				out.append('\n');
+				break;
+			case 'r':
+				out.append('\r');
+				break;
+			case 't':
+				out.append('\t');
+				break;
+			case 'u':
+				if (pos + 4 > text.length())
+					throw error("bad unicode escape");
+				try {
+					out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+				} catch (NumberFormatException e) {
+					throw error("bad unicode escape");
+				}
+				pos += 4;
+				break;
+			default:
+				out.append(c);
+			}
+		}
+	}
+
+	private Double number() {
+		int start = pos;
+		while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0)
+			pos++;
+		try {
+			return Double.valueOf(text.substring(start, pos));
+		} catch (NumberFormatException e) {
+			throw error("value expected");
+		}
+	}
+
+	private boolean next(char c) {
+		if (pos < text.length() && text.charAt(pos) == c) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipSpace() {
+		while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+			pos++;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("Bad JSON at offset " + pos + ": " + message);
+	}
+}
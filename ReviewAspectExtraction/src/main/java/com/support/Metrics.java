@@ -0,0 +1,452 @@
+package com.support;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, gauges, timers and per-iteration values of one run, written as JSON
+ * (metrics.json) and in the Prometheus text format (metrics.prom, e.g. for
+ * the node exporter's textfile collector) at the end of a run and, for long
+ * runs, periodically while it is going on.
+ *
+ * A metric is identified by its name and labels; asking for the same one
+ * twice returns the same instance, so the pipeline classes look theirs up
+ * once, in static fields. Updates are lock-free and safe from any thread.
+ * Timers can be switched off, which turns them into no-ops that do not
+ * even read the clock.
+ */
+public class Metrics {
+
+	public static final String PREFIX = "rae_";
+
+	/** Histogram bucket bounds in nanoseconds: 1, 2.5 and 5 per decade from 1 microsecond to 10 seconds. */
+	private static final long[] BUCKETS = { 1000L, 2500L, 5000L, 10000L, 25000L, 50000L, 100000L, 250000L, 500000L,
+			1000000L, 2500000L, 5000000L, 10000000L, 25000000L, 50000000L, 100000000L, 250000000L, 500000000L,
+			1000000000L, 2500000000L, 5000000000L, 10000000000L };
+
+	private static final Metrics DEFAULT = new Metrics();
+
+	private final Map<String, Counter> counters = new LinkedHashMap<String, Counter>();
+	private final Map<String, Timer> timers = new LinkedHashMap<String, Timer>();
+	private final Map<String, Gauge> gauges = new LinkedHashMap<String, Gauge>();
+	private final Map<String, String> help = new LinkedHashMap<String, String>();
+	/** value name to (iteration to value) */
+	private final Map<String, TreeMap<Integer, Long>> iterations = new LinkedHashMap<String, TreeMap<Integer, Long>>();
+	private volatile boolean timing = true;
+	private ScheduledExecutorService reporter;
+
+	/** The registry the pipeline classes report to. */
+	public static Metrics getDefault() {
+		return DEFAULT;
+	}
+
+	public boolean isTiming() {
+		return timing;
+	}
+
+	public void setTiming(boolean timing) {
+		this.timing = timing;
+	}
+
+	/** labels are name/value pairs, e.g. "rule", "R1.1". */
+	public synchronized Counter counter(String name, String description, String... labels) {
+		String key = key(name, labels);
+		Counter counter = counters.get(key);
+		if (counter == null) {
+			counter = new Counter(name, labels);
+			counters.put(key, counter);
+			help.put(name, description);
+		}
+		return counter;
+	}
+
+	/** A histogram of durations in seconds; labels as for {@link #counter}. */
+	public synchronized Timer timer(String name, String description, String... labels) {
+		String key = key(name, labels);
+		Timer timer = timers.get(key);
+		if (timer == null) {
+			timer = new Timer(this, name, labels);
+			timers.put(key, timer);
+			help.put(name, description);
+		}
+		return timer;
+	}
+
+	/** A value that goes up and down, such as a queue depth; labels as for {@link #counter}. */
+	public synchronized Gauge gauge(String name, String description, String... labels) {
+		String key = key(name, labels);
+		Gauge gauge = gauges.get(key);
+		if (gauge == null) {
+			gauge = new Gauge(name, labels);
+			gauges.put(key, gauge);
+			help.put(name, description);
+		}
+		return gauge;
+	}
+
+	/** The timer of a pipeline stage such as "tag" or "parse". */
+	public Timer stage(String stage) {
+		return timer("stage_seconds", "Time of one call of a pipeline stage.", "stage", stage);
+	}
+
+	/**
+	 * Adds to a value of one fixpoint iteration, e.g. the number of features
+	 * it added. Extractions running at the same time add up per iteration.
+	 */
+	public synchronized void addIterationValue(String name, int iteration, long value) {
+		TreeMap<Integer, Long> values = iterations.get(name);
+		if (values == null) {
+			values = new TreeMap<Integer, Long>();
+			iterations.put(name, values);
+		}
+		Long previous = values.get(iteration);
+		values.put(iteration, previous != null ? previous + value : value);
+	}
+
+	public static class Counter {
+
+		private final String name;
+		private final String[] labels;
+		private final LongAdder value = new LongAdder();
+
+		Counter(String name, String[] labels) {
+			this.name = name;
+			this.labels = labels;
+		}
+
+		public void increment() {
+			value.increment();
+		}
+
+		public void add(long n) {
+			value.add(n);
+		}
+
+		public long get() {
+			return value.sum();
+		}
+	}
+
+	public static class Gauge {
+
+		private final String name;
+		private final String[] labels;
+		private final AtomicLong value = new AtomicLong();
+
+		Gauge(String name, String[] labels) {
+			this.name = name;
+			this.labels = labels;
+		}
+
+		public void set(long n) {
+			value.set(n);
+		}
+
+		/** Adds n (which may be negative) and returns the new value. */
+		public long add(long n) {
+			return value.addAndGet(n);
+		}
+
+		public long get() {
+			return value.get();
+		}
+	}
+
+	public static class Timer {
+
+		private final Metrics owner;
+		private final String name;
+		private final String[] labels;
+		private final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+		private final LongAdder count = new LongAdder();
+		private final LongAdder sumNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		Timer(Metrics owner, String name, String[] labels) {
+			this.owner = owner;
+			this.name = name;
+			this.labels = labels;
+			for (int b = 0; b < buckets.length; b++)
+				buckets[b] = new LongAdder();
+		}
+
+		/** The start time to pass to {@link #stop(long)}, or 0 when timing is off. */
+		public long start() {
+			return owner.timing ? System.nanoTime() : 0;
+		}
+
+		/** Records the time since start, unless start is 0. */
+		public void stop(long start) {
+			if (start != 0)
+				record(System.nanoTime() - start);
+		}
+
+		public void record(long nanos) {
+			int b = 0;
+			while (b < BUCKETS.length && nanos > BUCKETS[b])
+				b++;
+			buckets[b].increment();
+			count.increment();
+			sumNanos.add(nanos);
+			long max = maxNanos.get();
+			while (nanos > max && !maxNanos.compareAndSet(max, nanos))
+				max = maxNanos.get();
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getTotalNanos() {
+			return sumNanos.sum();
+		}
+	}
+
+	/**
+	 * Writes metrics.json and metrics.prom into dir, each through a temporary
+	 * file so that a reader never sees a half-written report.
+	 */
+	public void writeReports(File dir) throws IOException {
+		dir.mkdirs();
+		write(new File(dir, "metrics.json"), toJson());
+		write(new File(dir, "metrics.prom"), toPrometheus());
+	}
+
+	/** Writes the reports into dir every periodSeconds until {@link #stopReporting()}. */
+	public synchronized void startReporting(final File dir, long periodSeconds) {
+		stopReporting();
+		reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "metrics-reporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		reporter.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				try {
+					writeReports(dir);
+				} catch (IOException e) {
+					System.err.println("Could not write the metrics to " + dir + ": " + e);
+				}
+			}
+		}, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+	}
+
+	public synchronized void stopReporting() {
+		if (reporter != null) {
+			reporter.shutdownNow();
+			reporter = null;
+		}
+	}
+
+	public synchronized String toJson() {
+		StringBuilder json = new StringBuilder(4096);
+		json.append("{\n  \"timestamp_ms\": ").append(System.currentTimeMillis());
+		json.append(",\n  \"uptime_seconds\": ").append(ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
+		json.append(",\n  \"heap_used_bytes\": ")
+				.append(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		json.append(",\n  \"counters\": [");
+		String separator = "\n";
+		for (Counter counter : counters.values()) {
+			json.append(separator).append("    {\"name\": \"").append(PREFIX).append(counter.name).append('"');
+			appendJsonLabels(json, counter.labels);
+			json.append(", \"value\": ").append(counter.get()).append('}');
+			separator = ",\n";
+		}
+		json.append("\n  ],\n  \"gauges\": [");
+		separator = "\n";
+		for (Gauge gauge : gauges.values()) {
+			json.append(separator).append("    {\"name\": \"").append(PREFIX).append(gauge.name).append('"');
+			appendJsonLabels(json, gauge.labels);
+			json.append(", \"value\": ").append(gauge.get()).append('}');
+			separator = ",\n";
+		}
+		json.append("\n  ],\n  \"timers\": [");
+		separator = "\n";
+		for (Timer timer : timers.values()) {
+			long count = timer.getCount();
+			json.append(separator).append("    {\"name\": \"").append(PREFIX).append(timer.name).append('"');
+			appendJsonLabels(json, timer.labels);
+			json.append(", \"count\": ").append(count);
+			json.append(", \"sum_seconds\": ").append(timer.getTotalNanos() / 1e9);
+			json.append(", \"mean_seconds\": ").append(count == 0 ? 0 : timer.getTotalNanos() / 1e9 / count);
+			json.append(", \"max_seconds\": ").append(timer.maxNanos.get() / 1e9);
+			json.append(", \"buckets\": [");
+			for (int b = 0; b < timer.buckets.length; b++) {
+				if (b > 0)
+					json.append(", ");
+				json.append("{\"le\": ").append(b < BUCKETS.length ? Double.toString(BUCKETS[b] / 1e9) : "\"+Inf\"");
+				json.append(", \"count\": ").append(timer.buckets[b].sum()).append('}');
+			}
+			json.append("]}");
+			separator = ",\n";
+		}
+		json.append("\n  ],\n  \"iterations\": [");
+		separator = "\n";
+		for (Map.Entry<Integer, Map<String, Long>> iteration : byIteration().entrySet()) {
+			json.append(separator).append("    {\"iteration\": ").append(iteration.getKey());
+			for (Map.Entry<String, Long> value : iteration.getValue().entrySet())
+				json.append(", \"").append(value.getKey()).append("\": ").append(value.getValue());
+			json.append('}');
+			separator = ",\n";
+		}
+		json.append("\n  ]\n}\n");
+		return json.toString();
+	}
+
+	public synchronized String toPrometheus() {
+		StringBuilder text = new StringBuilder(8192);
+		gauge(text, "uptime_seconds", "Time since the JVM started.",
+				Double.toString(ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0));
+		gauge(text, "heap_used_bytes", "Heap in use when the report was written.",
+				Long.toString(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed()));
+		// the samples of a family must follow its header, whatever order they were registered in
+		for (String family : help.keySet()) {
+			boolean first = true;
+			for (Counter counter : counters.values()) {
+				if (!counter.name.equals(family))
+					continue;
+				if (first)
+					header(text, family, "counter");
+				first = false;
+				text.append(PREFIX).append(counter.name);
+				appendPrometheusLabels(text, counter.labels, null);
+				text.append(' ').append(counter.get()).append('\n');
+			}
+			for (Gauge gauge : gauges.values()) {
+				if (!gauge.name.equals(family))
+					continue;
+				if (first)
+					header(text, family, "gauge");
+				first = false;
+				text.append(PREFIX).append(gauge.name);
+				appendPrometheusLabels(text, gauge.labels, null);
+				text.append(' ').append(gauge.get()).append('\n');
+			}
+			for (Timer timer : timers.values()) {
+				if (!timer.name.equals(family))
+					continue;
+				if (first)
+					header(text, family, "histogram");
+				first = false;
+				long cumulative = 0;
+				for (int b = 0; b < timer.buckets.length; b++) {
+					cumulative += timer.buckets[b].sum();
+					text.append(PREFIX).append(timer.name).append("_bucket");
+					appendPrometheusLabels(text, timer.labels,
+							b < BUCKETS.length ? Double.toString(BUCKETS[b] / 1e9) : "+Inf");
+					text.append(' ').append(cumulative).append('\n');
+				}
+				text.append(PREFIX).append(timer.name).append("_sum");
+				appendPrometheusLabels(text, timer.labels, null);
+				text.append(' ').append(timer.getTotalNanos() / 1e9).append('\n');
+				text.append(PREFIX).append(timer.name).append("_count");
+				appendPrometheusLabels(text, timer.labels, null);
+				text.append(' ').append(timer.getCount()).append('\n');
+			}
+		}
+
+		for (Map.Entry<String, TreeMap<Integer, Long>> values : iterations.entrySet()) {
+			String name = "iteration_" + values.getKey();
+			text.append("# HELP ").append(PREFIX).append(name).append(" ").append(values.getKey().replace('_', ' '))
+					.append(" per fixpoint iteration.\n");
+			text.append("# TYPE ").append(PREFIX).append(name).append(" gauge\n");
+			for (Map.Entry<Integer, Long> value : values.getValue().entrySet())
+				text.append(PREFIX).append(name).append("{iteration=\"").append(value.getKey()).append("\"} ")
+						.append(value.getValue()).append('\n');
+		}
+		return text.toString();
+	}
+
+	/** iteration to (value name to value) */
+	private Map<Integer, Map<String, Long>> byIteration() {
+		Map<Integer, Map<String, Long>> rows = new TreeMap<Integer, Map<String, Long>>();
+		for (Map.Entry<String, TreeMap<Integer, Long>> values : iterations.entrySet())
+			for (Map.Entry<Integer, Long> value : values.getValue().entrySet()) {
+				Map<String, Long> row = rows.get(value.getKey());
+				if (row == null) {
+					row = new LinkedHashMap<String, Long>();
+					rows.put(value.getKey(), row);
+				}
+				row.put(values.getKey(), value.getValue());
+			}
+		return rows;
+	}
+
+	private void header(StringBuilder text, String name, String type) {
+		text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help.get(name)).append('\n');
+		text.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void gauge(StringBuilder text, String name, String description, String value) {
+		text.append("# HELP ").append(PREFIX).append(name).append(' ').append(description).append('\n');
+		text.append("# TYPE ").append(PREFIX).append(name).append(" gauge\n");
+		text.append(PREFIX).append(name).append(' ').append(value).append('\n');
+	}
+
+	private static void appendJsonLabels(StringBuilder json, String[] labels) {
+		if (labels.length == 0)
+			return;
+		json.append(", \"labels\": {");
+		for (int i = 0; i + 1 < labels.length; i += 2) {
+			if (i > 0)
+				json.append(", ");
+			json.append('"').append(escape(labels[i])).append("\": \"").append(escape(labels[i + 1])).append('"');
+		}
+		json.append('}');
+	}
+
+	private static void appendPrometheusLabels(StringBuilder text, String[] labels, String le) {
+		if (labels.length == 0 && le == null)
+			return;
+		text.append('{');
+		for (int i = 0; i + 1 < labels.length; i += 2) {
+			if (i > 0)
+				text.append(',');
+			text.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+		}
+		if (le != null)
+			text.append(labels.length > 0 ? "," : "").append("le=\"").append(le).append('"');
+		text.append('}');
+	}
+
+	/** Backslash, quote and newline escaped; the same rules hold for JSON strings and Prometheus label values. */
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static String key(String name, String[] labels) {
+		StringBuilder key = new StringBuilder(name);
+		for (String label : labels)
+			key.append('\u0000').append(label);
+		return key.toString();
+	}
+
+	private static void write(File file, String content) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8);
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,142 @@
+package com.support;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.stanford.nlp.ling.Sentence;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.tagger.maxent.MaxentTagger;
+
+/**
+ * Holds the POS tagger and the PCFG parser for the whole process.
+ * Each model is loaded lazily on first use and exactly once; the loaded
+ * instances are safe to share between threads (both tagSentence and apply
+ * build their own per-call state).
+ */
+public class ModelRegistry {
+
+	public static final String TAGGER_MODEL = "tagger/english-bidirectional-distsim.tagger";
+	public static final String PARSER_MODEL = "edu/stanford/nlp/models/lexparser/englishPCFG.ser.gz";
+
+	private static final ModelRegistry DEFAULT = new ModelRegistry(TAGGER_MODEL, PARSER_MODEL);
+
+	private final String taggerModel;
+	private final String parserModel;
+
+	private final Object taggerLock = new Object();
+	private final Object parserLock = new Object();
+	private volatile MaxentTagger tagger;
+	private volatile LexicalizedParser parser;
+
+	private volatile long taggerLoadNanos = -1;
+	private volatile long parserLoadNanos = -1;
+	private volatile long warmUpNanos = -1;
+
+	public ModelRegistry(String taggerModel, String parserModel) {
+		this.taggerModel = taggerModel;
+		this.parserModel = parserModel;
+	}
+
+	/** The registry used by the command line, backed by the bundled model paths. */
+	public static ModelRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	public MaxentTagger tagger() {
+		MaxentTagger t = tagger;
+		if (t == null) {
+			synchronized (taggerLock) {
+				t = tagger;
+				if (t == null) {
+					long start = System.nanoTime();
+					t = new MaxentTagger(taggerModel);
+					taggerLoadNanos = System.nanoTime() - start;
+					tagger = t;
+				}
+			}
+		}
+		return t;
+	}
+
+	public LexicalizedParser parser() {
+		LexicalizedParser p = parser;
+		if (p == null) {
+			synchronized (parserLock) {
+				p = parser;
+				if (p == null) {
+					long start = System.nanoTime();
+					p = LexicalizedParser.loadModel(parserModel);
+					parserLoadNanos = System.nanoTime() - start;
+					parser = p;
+				}
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Loads both models concurrently and pushes one short sentence through
+	 * each of them, so the first real sentence does not pay for class
+	 * loading and JIT warm-up.
+	 */
+	public void warmUp() {
+		warmUp(true);
+	}
+
+	/** Like {@link #warmUp()}, leaving the parser alone unless withParser is set. */
+	public void warmUp(final boolean withParser) {
+		long start = System.nanoTime();
+		ExecutorService loader = Executors.newFixedThreadPool(2);
+		try {
+			Future<MaxentTagger> t = loader.submit(new Callable<MaxentTagger>() {
+				public MaxentTagger call() {
+					return tagger();
+				}
+			});
+			Future<LexicalizedParser> p = loader.submit(new Callable<LexicalizedParser>() {
+				public LexicalizedParser call() {
+					return withParser ? parser() : null;
+				}
+			});
+			String warmUp[] = { "the", "battery", "life", "is", "great", "." };
+			t.get().tagSentence(Sentence.toWordList(warmUp));
+			if (withParser)
+				DependencyParserImp.parse(p.get(), warmUp, true, false);
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not warm up the NLP models", e);
+		} finally {
+			loader.shutdown();
+		}
+		warmUpNanos = System.nanoTime() - start;
+	}
+
+	public boolean isTaggerLoaded() {
+		return tagger != null;
+	}
+
+	public boolean isParserLoaded() {
+		return parser != null;
+	}
+
+	/** Time spent loading the tagger in milliseconds, or -1 if it is not loaded yet. */
+	public long getTaggerLoadMillis() {
+		return taggerLoadNanos < 0 ? -1 : taggerLoadNanos / 1000000L;
+	}
+
+	/** Time spent loading the parser in milliseconds, or -1 if it is not loaded yet. */
+	public long getParserLoadMillis() {
+		return parserLoadNanos < 0 ? -1 : parserLoadNanos / 1000000L;
+	}
+
+	/** Wall-clock time of the last {@link #warmUp()} in milliseconds, or -1 if it never ran. */
+	public long getWarmUpMillis() {
+		return warmUpNanos < 0 ? -1 : warmUpNanos / 1000000L;
+	}
+
+	public String report() {
+		return "TaggerLoadMs=" + getTaggerLoadMillis() + " ParserLoadMs=" + getParserLoadMillis()
+				+ " WarmUpMs=" + getWarmUpMillis();
+	}
+}
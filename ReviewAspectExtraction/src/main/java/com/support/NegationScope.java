@@ -0,0 +1,71 @@
+package com.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Marks the token positions of a sentence that fall in the scope of a
+ * negation or contrast cue ("not", "but", ...). A position is negated when
+ * a cue occurs among the {@code before} tokens preceding it, the token
+ * itself or the {@code after} tokens following it. The scope is computed in
+ * one pass per sentence and the rules only test a bit.
+ */
+public class NegationScope {
+
+	/** The cue words the rules have always used. */
+	public static final String[] DEFAULT_CUES = { "not", "n't", "'t", "however", "but", "despite", "though", "except",
+			"although", "oddly" };
+
+	private final IntIntMap cues = new IntIntMap();
+	private final int before;
+	private final int after;
+
+	/** The default cues with the original window of two tokens before and one after. */
+	public NegationScope() {
+		this(SymbolTable.getDefault(), Arrays.asList(DEFAULT_CUES), 2, 1);
+	}
+
+	public NegationScope(SymbolTable symbols, List<String> cueWords, int before, int after) {
+		this.before = before;
+		this.after = after;
+		for (String cue : cueWords)
+			cues.put(symbols.intern(cue.toLowerCase()), 1);
+	}
+
+	/** Reads one cue per line; blank lines and lines starting with '#' are skipped. */
+	public static List<String> readCues(File file) throws IOException {
+		List<String> cueWords = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#"))
+					cueWords.add(line);
+			}
+		} finally {
+			in.close();
+		}
+		return cueWords;
+	}
+
+	/** Negated positions of a sentence given as {@link SymbolTable} ids of its lower-cased tokens. */
+	public BitSet scope(int[] wordId) {
+		BitSet negated = new BitSet(wordId.length);
+		for (int i = 0; i < wordId.length; i++)
+			if (cues.containsKey(wordId[i]))
+				negated.set(Math.max(0, i - after), Math.min(wordId.length, i + before + 1));
+		return negated;
+	}
+
+	/** -1 for a negated position, 1 otherwise. */
+	public static int polarity(BitSet negated, int posi) {
+		return negated.get(posi) ? -1 : 1;
+	}
+}
@@ -0,0 +1,101 @@
+package com.support;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs fixpoint iterations on a fork-join pool. Reviews are read in batches;
+ * each batch is split into ranges whose workers analyze (on a cache miss) and
+ * apply the rules with a private {@link RuleAccumulator}. The accumulators
+ * are merged in review order and applied to the shared dictionaries only
+ * after the whole iteration, so the result does not depend on the number of
+ * threads.
+ */
+public class ParallelRuleRunner {
+
+	/** Reviews handled sequentially by one leaf task. */
+	private static final int LEAF_REVIEWS = 16;
+
+	private final ForkJoinPool pool;
+	private final int batchSize;
+
+	public ParallelRuleRunner(int threads, int batchSize) {
+		this.pool = new ForkJoinPool(threads);
+		this.batchSize = batchSize;
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Runs the rules of the engine over the whole corpus against the given
+	 * dictionaries, which are not modified. When a store writer is given
+	 * every review is added to it in file order.
+	 */
+	public RuleAccumulator run(RuleEngine engine, Iterable<AnalyzedReview> corpus, IntIntMap opDict,
+			IntIntMap feature, ParsedCorpusStore.Writer storeWriter) throws IOException {
+		RuleAccumulator total = new RuleAccumulator(engine.getSymbols());
+		List<AnalyzedReview> batch = new ArrayList<AnalyzedReview>(batchSize);
+		Iterator<AnalyzedReview> reviews = corpus.iterator();
+		while (reviews.hasNext()) {
+			batch.add(reviews.next());
+			if (batch.size() == batchSize || !reviews.hasNext()) {
+				total.merge(pool.invoke(new Range(engine, batch, 0, batch.size(), opDict, feature)));
+				if (storeWriter != null)
+					for (AnalyzedReview review : batch)
+						storeWriter.add(review);
+				batch.clear();
+			}
+		}
+		return total;
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private static class Range extends RecursiveTask<RuleAccumulator> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final RuleEngine engine;
+		private final List<AnalyzedReview> reviews;
+		private final int from;
+		private final int to;
+		private final IntIntMap opDict;
+		private final IntIntMap feature;
+
+		Range(RuleEngine engine, List<AnalyzedReview> reviews, int from, int to, IntIntMap opDict,
+				IntIntMap feature) {
+			this.engine = engine;
+			this.reviews = reviews;
+			this.from = from;
+			this.to = to;
+			this.opDict = opDict;
+			this.feature = feature;
+		}
+
+		@Override
+		protected RuleAccumulator compute() {
+			if (to - from <= LEAF_REVIEWS) {
+				RuleAccumulator acc = new RuleAccumulator(engine.getSymbols());
+				for (int r = from; r < to; r++) {
+					AnalyzedReview review = reviews.get(r);
+					for (AnalyzedSentence sentence : review.getSentences())
+						acc.apply(engine, sentence, review.getReviewId(), review.getPolarity(), opDict, feature);
+				}
+				return acc;
+			}
+			int mid = (from + to) >>> 1;
+			Range left = new Range(engine, reviews, from, mid, opDict, feature);
+			left.fork();
+			RuleAccumulator right = new Range(engine, reviews, mid, to, opDict, feature).compute();
+			return left.join().merge(right);
+		}
+	}
+}
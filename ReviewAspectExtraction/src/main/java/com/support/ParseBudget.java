@@ -0,0 +1,153 @@
+package com.support;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits on the dependency parse of one sentence. The PCFG parser is about
+ * cubic in the sentence length, in time and chart memory, so a sentence
+ * longer than {@code maxTokens} is not parsed at all, and a parse still
+ * running after {@code timeoutMillis} is interrupted. A sentence over budget
+ * (or for which the parser runs out of memory) gets the adjective-noun
+ * adjacency edges of {@link DependencyGraph#adjacentModifiers(byte[])}
+ * instead. A limit of 0 means no limit.
+ *
+ * The counters cover every sentence sent to the parser through this
+ * budget, so they can be used to tune the limits.
+ */
+public class ParseBudget {
+
+	private static ScheduledExecutorService watchdog;
+
+	private final int maxTokens;
+	private final long timeoutMillis;
+	private final AtomicLong parsed = new AtomicLong();
+	private final AtomicLong tooLong = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+	private final AtomicLong outOfMemory = new AtomicLong();
+
+	/** No limits. */
+	public ParseBudget() {
+		this(0, 0);
+	}
+
+	public ParseBudget(int maxTokens, long timeoutMillis) {
+		this.maxTokens = maxTokens;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	public int getMaxTokens() {
+		return maxTokens;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/** Whether a sentence of this length may be parsed; counts it as too long otherwise. */
+	boolean admits(int tokens) {
+		if (maxTokens > 0 && tokens > maxTokens) {
+			tooLong.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/** Starts the clock for a parse on the calling thread, or returns null without a time limit. */
+	Deadline start() {
+		return timeoutMillis > 0 ? new Deadline(timeoutMillis) : null;
+	}
+
+	void countParsed() {
+		parsed.incrementAndGet();
+	}
+
+	void countTimedOut() {
+		timedOut.incrementAndGet();
+	}
+
+	void countOutOfMemory() {
+		outOfMemory.incrementAndGet();
+	}
+
+	/** Sentences parsed within the budget. */
+	public long getParsed() {
+		return parsed.get();
+	}
+
+	public long getTooLong() {
+		return tooLong.get();
+	}
+
+	public long getTimedOut() {
+		return timedOut.get();
+	}
+
+	public long getOutOfMemory() {
+		return outOfMemory.get();
+	}
+
+	/** Sentences that got the adjacency fallback instead of a parse. */
+	public long getFallbacks() {
+		return getTooLong() + getTimedOut() + getOutOfMemory();
+	}
+
+	public String toString() {
+		return "parsed " + getParsed() + ", fell back to JJ+NN for " + getFallbacks() + " (" + getTooLong()
+				+ " too long" + (maxTokens > 0 ? " (> " + maxTokens + " tokens)" : "") + ", " + getTimedOut()
+				+ " timed out" + (timeoutMillis > 0 ? " (> " + timeoutMillis + " ms)" : "") + ", " + getOutOfMemory()
+				+ " out of memory)";
+	}
+
+	private static synchronized ScheduledExecutorService watchdog() {
+		if (watchdog == null) {
+			ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "parse-watchdog");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			executor.setRemoveOnCancelPolicy(true);
+			watchdog = executor;
+		}
+		return watchdog;
+	}
+
+	/**
+	 * Interrupts the parsing thread when the time is up, unless the parse
+	 * has finished first. The parser checks the interrupt flag while it
+	 * fills its chart and gives up with a RuntimeInterruptedException.
+	 */
+	static class Deadline implements Runnable {
+
+		private final Thread thread = Thread.currentThread();
+		private final ScheduledFuture<?> future;
+		private boolean finished;
+		private boolean fired;
+
+		Deadline(long timeoutMillis) {
+			future = watchdog().schedule(this, timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		public synchronized void run() {
+			if (!finished) {
+				fired = true;
+				thread.interrupt();
+			}
+		}
+
+		/** Stops the clock; returns whether it had run out, clearing the interrupt it raised. */
+		synchronized boolean finish() {
+			finished = true;
+			future.cancel(false);
+			if (fired)
+				Thread.interrupted();
+			return fired;
+		}
+	}
+}
@@ -0,0 +1,581 @@
+package com.support;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk binary copy of an analyzed review corpus. The first run over a
+ * review file writes it through a {@link Writer}; later runs over the same,
+ * unmodified file memory-map it and hand the rule engine the stored tokens,
+ * POS tags and dependencies without loading the tagger.
+ *
+ * Sentences no rule needed while the store was written are kept unparsed
+ * (edge count -1). They are parsed on demand by the {@link DependencyBackend}
+ * given to {@link #open}, once per run, if a rule later needs them.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * header    magic, version, source length, source mtime, review count,
+ *           sentence count, offset of the tables, dependency flags,
+ *           normalizer fingerprint, offset of the review id table
+ *           (64 bytes)
+ * sentences per sentence: token count, token ids, POS ids (short),
+ *           edge count (-1 when not parsed), per edge relation id
+ *           (short), governor and dependent token position (-1 for ROOT)
+ * tables    token, POS and relation string tables (UTF-8),
+ *           review index (review id, score, first sentence, sentence count),
+ *           sentence offsets (long),
+ *           review id table (review id, position) sorted by review id
+ * </pre>
+ * The store only depends on the review file, on the kind of dependencies
+ * requested (see {@link SentenceAnalyzer#getDependencyFlags()}) and on the
+ * replacement table of the {@link ReviewNormalizer}, so it stays valid when
+ * the opinion lexicons change.
+ */
+public class ParsedCorpusStore implements Iterable<AnalyzedReview> {
+
+	private static final int MAGIC = 0x52414531; // "RAE1"
+	private static final int VERSION = 6;
+	private static final int HEADER_BYTES = 64;
+
+	private final MappedFile data;
+	private final String[] tokens;
+	private final byte[] tags;
+	private final short[] relations;
+	private final int[] reviewIndex;
+	/** Review ids in ascending order, each followed by the position of its review. */
+	private final int[] reviewIds;
+	private final long[] sentenceOffsets;
+	private final DependencyBackend backend;
+	private final SentenceCache cache;
+	/** Dependencies of the unparsed sentences parsed during this run, by sentence index. */
+	private final ConcurrentHashMap<Integer, DependencyGraph> lateParses = new ConcurrentHashMap<Integer, DependencyGraph>();
+
+	private ParsedCorpusStore(MappedFile data, DependencyBackend backend, SentenceCache cache) {
+		this.data = data;
+		this.backend = backend;
+		this.cache = cache;
+		int reviewCount = data.getInt(24);
+		int sentenceCount = data.getInt(28);
+		long pos[] = { data.getLong(32) };
+		tokens = readStrings(data, pos);
+		String tagNames[] = readStrings(data, pos);
+		tags = new byte[tagNames.length];
+		for (int i = 0; i < tags.length; i++)
+			tags[i] = PosTags.tagId(tagNames[i]);
+		String relationNames[] = readStrings(data, pos);
+		relations = new short[relationNames.length];
+		for (int i = 0; i < relations.length; i++)
+			relations[i] = DependencyGraph.relationId(relationNames[i]);
+		reviewIndex = new int[reviewCount * 4];
+		for (int i = 0; i < reviewIndex.length; i++, pos[0] += 4)
+			reviewIndex[i] = data.getInt(pos[0]);
+		sentenceOffsets = new long[sentenceCount];
+		for (int i = 0; i < sentenceCount; i++, pos[0] += 8)
+			sentenceOffsets[i] = data.getLong(pos[0]);
+		reviewIds = new int[reviewCount * 2];
+		long idTable = data.getLong(48);
+		for (int i = 0; i < reviewIds.length; i++, idTable += 4)
+			reviewIds[i] = data.getInt(idTable);
+	}
+
+	/** Where the store for the given review file lives inside the output directory. */
+	public static File storeFileFor(File source, File outputDir) {
+		return new File(outputDir, source.getName() + ".parsed");
+	}
+
+	/**
+	 * Maps an existing store. Returns null when there is none, or when it was
+	 * written for a different version of the review file, with different
+	 * dependency flags or another normalizer table and must be rebuilt.
+	 * Unparsed sentences are parsed with backend when they are needed.
+	 * Decoded sentences are kept in cache, if not null, for the later
+	 * iterations of the run.
+	 */
+	public static ParsedCorpusStore open(File store, File source, int dependencyFlags, int normalization,
+			DependencyBackend backend, SentenceCache cache) throws IOException {
+		return open(store, source.length(), source.lastModified(), dependencyFlags, normalization, backend, cache);
+	}
+
+	/**
+	 * Like {@link #open(File, File, int, int, DependencyBackend, SentenceCache)} for a store
+	 * written from a review file of the given length and modification time,
+	 * which need not exist any more.
+	 */
+	public static ParsedCorpusStore open(File store, long sourceLength, long sourceModified, int dependencyFlags,
+			int normalization, DependencyBackend backend, SentenceCache cache) throws IOException {
+		if (!store.isFile() || store.length() < HEADER_BYTES)
+			return null;
+		// check the header before mapping: a stale store is about to be
+		// replaced, which a live mapping prevents on some platforms
+		ByteBuffer header = readHeader(store);
+		if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getLong(8) != sourceLength
+				|| header.getLong(16) != sourceModified || header.getInt(40) != dependencyFlags
+				|| header.getInt(44) != normalization)
+			return null;
+		return new ParsedCorpusStore(MappedFile.map(store), backend, cache);
+	}
+
+	private static ByteBuffer readHeader(File store) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(store, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining())
+				if (channel.read(header, header.position()) < 0)
+					throw new IOException("Truncated store " + store);
+			return header;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Where the store for the part of a growing corpus held in the given
+	 * review file lives, its first review being number firstReviewId of the
+	 * corpus; several parts may come from files of the same name.
+	 */
+	public static File storeFileFor(File source, File outputDir, int firstReviewId) {
+		return firstReviewId == 1 ? storeFileFor(source, outputDir)
+				: new File(outputDir, source.getName() + "." + firstReviewId + ".parsed");
+	}
+
+	/** Starts a new store for the given review file; it becomes visible on {@link Writer#close()}. */
+	public static Writer create(File store, File source, int dependencyFlags, int normalization) throws IOException {
+		return new Writer(store, source, dependencyFlags, normalization);
+	}
+
+	/** Length of the review file the store was written from. */
+	public long getSourceLength() {
+		return data.getLong(8);
+	}
+
+	/** Modification time of the review file the store was written from. */
+	public long getSourceModified() {
+		return data.getLong(16);
+	}
+
+	public int getReviewCount() {
+		return reviewIndex.length / 4;
+	}
+
+	public int getSentenceCount() {
+		return sentenceOffsets.length;
+	}
+
+	/** The review at the given 0-based position in the file. */
+	public AnalyzedReview review(int index) {
+		int base = index * 4;
+		int first = reviewIndex[base + 2];
+		AnalyzedSentence sentences[] = new AnalyzedSentence[reviewIndex[base + 3]];
+		for (int i = 0; i < sentences.length; i++)
+			sentences[i] = sentence(first + i);
+		return new AnalyzedReview(reviewIndex[base], reviewIndex[base + 1], sentences);
+	}
+
+	/**
+	 * Position of the review with the given id, found in the review id table,
+	 * or -1 when the store has none. With duplicate ids, the first one wins.
+	 */
+	public int positionOf(int reviewId) {
+		int lo = 0, hi = reviewIds.length / 2;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (reviewIds[mid * 2] < reviewId)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo < reviewIds.length / 2 && reviewIds[lo * 2] == reviewId ? reviewIds[lo * 2 + 1] : -1;
+	}
+
+	/** The review with the given id, or null when the store has none. */
+	public AnalyzedReview reviewById(int reviewId) {
+		int index = positionOf(reviewId);
+		return index < 0 ? null : review(index);
+	}
+
+	/**
+	 * The review at the given position with only the listed sentences,
+	 * sentences[from..to), which must all belong to it.
+	 */
+	public AnalyzedReview review(int index, int[] sentences, int from, int to) {
+		AnalyzedSentence selected[] = new AnalyzedSentence[to - from];
+		for (int i = from; i < to; i++)
+			selected[i - from] = sentence(sentences[i]);
+		return new AnalyzedReview(reviewIndex[index * 4], reviewIndex[index * 4 + 1], selected);
+	}
+
+	/** Index of the first sentence of the review at the given position. */
+	public int firstSentenceOf(int review) {
+		return reviewIndex[review * 4 + 2];
+	}
+
+	/** Position of the review the given sentence belongs to. */
+	public int reviewOf(int sentence) {
+		int lo = 0, hi = getReviewCount() - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (reviewIndex[mid * 4 + 2] <= sentence)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	/** Number of distinct tokens in the token table. */
+	public int getTokenCount() {
+		return tokens.length;
+	}
+
+	public String token(int id) {
+		return tokens[id];
+	}
+
+	/** Token table ids of the words of a sentence, without decoding the rest of it. */
+	public int[] tokenIds(int index) {
+		long pos = sentenceOffsets[index];
+		int ids[] = new int[data.getInt(pos)];
+		pos += 4;
+		for (int i = 0; i < ids.length; i++, pos += 4)
+			ids[i] = data.getInt(pos);
+		return ids;
+	}
+
+	public AnalyzedSentence sentence(int index) {
+		if (cache == null)
+			return decode(index);
+		AnalyzedSentence analyzed = cache.get(this, index);
+		if (analyzed == null) {
+			analyzed = decode(index);
+			cache.put(this, index, analyzed);
+		}
+		return analyzed;
+	}
+
+	private AnalyzedSentence decode(int index) {
+		long pos = sentenceOffsets[index];
+		int n = data.getInt(pos);
+		pos += 4;
+		String word[] = new String[n];
+		byte tagIds[] = new byte[n];
+		for (int i = 0; i < n; i++, pos += 4)
+			word[i] = tokens[data.getInt(pos)];
+		for (int i = 0; i < n; i++, pos += 2)
+			tagIds[i] = data.getShort(pos) < 0 ? PosTags.NONE : tags[data.getShort(pos)];
+		int edges = data.getInt(pos);
+		pos += 4;
+		if (edges < 0) {
+			DependencyGraph parsed = lateParses.get(index);
+			return parsed != null ? new AnalyzedSentence(join(word), word, tagIds, parsed)
+					: new AnalyzedSentence(join(word), word, tagIds, new LateParse(index));
+		}
+		short relation[] = new short[edges];
+		int governor[] = new int[edges];
+		int dependent[] = new int[edges];
+		for (int i = 0; i < edges; i++, pos += 10) {
+			relation[i] = relations[data.getShort(pos)];
+			governor[i] = data.getInt(pos + 2);
+			dependent[i] = data.getInt(pos + 6);
+		}
+		return new AnalyzedSentence(join(word), word, tagIds, new DependencyGraph(relation, governor, dependent));
+	}
+
+	/** Parses a stored, unparsed sentence with the store's backend and keeps the result for the rest of the run. */
+	private class LateParse implements DependencyBackend {
+
+		private final int index;
+
+		LateParse(int index) {
+			this.index = index;
+		}
+
+		public String getName() {
+			return backend.getName();
+		}
+
+		public int getFlags() {
+			return backend.getFlags();
+		}
+
+		public DependencyGraph parse(String[] word, byte[] tags) {
+			DependencyGraph parsed = lateParses.get(index);
+			if (parsed == null) {
+				parsed = backend.parse(word, tags);
+				if (parsed == null)
+					parsed = DependencyGraph.adjacentModifiers(tags);
+				lateParses.put(index, parsed);
+			}
+			return parsed;
+		}
+	}
+
+	public Iterator<AnalyzedReview> iterator() {
+		return new Iterator<AnalyzedReview>() {
+			private int next = 0;
+
+			public boolean hasNext() {
+				return next < getReviewCount();
+			}
+
+			public AnalyzedReview next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return review(next++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private static String join(String[] word) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < word.length; i++) {
+			if (i > 0)
+				sb.append(' ');
+			sb.append(word[i]);
+		}
+		return sb.toString();
+	}
+
+	private static String[] readStrings(MappedFile data, long[] pos) {
+		String values[] = new String[data.getInt(pos[0])];
+		pos[0] += 4;
+		for (int i = 0; i < values.length; i++) {
+			byte bytes[] = new byte[data.getInt(pos[0])];
+			pos[0] += 4;
+			data.get(pos[0], bytes);
+			pos[0] += bytes.length;
+			values[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return values;
+	}
+
+	/**
+	 * Appends analyzed reviews in file order. The data goes to a temporary
+	 * file that replaces the store only once it is complete, so an aborted
+	 * run never leaves a truncated store behind.
+	 */
+	public static class Writer {
+
+		private final File store;
+		private final File temp;
+		private final File source;
+		private final int dependencyFlags;
+		private final int normalization;
+		private final DataOutputStream out;
+		private final Map<String, Integer> tokenIds = new HashMap<String, Integer>();
+		private final Map<String, Integer> tagIds = new HashMap<String, Integer>();
+		private final Map<String, Integer> relationIds = new HashMap<String, Integer>();
+		private final List<String> tokens = new ArrayList<String>();
+		private final List<String> tags = new ArrayList<String>();
+		private final List<String> relations = new ArrayList<String>();
+		private final List<int[]> reviews = new ArrayList<int[]>();
+		private long[] sentenceOffsets = new long[1024];
+		private int sentenceCount;
+		private long offset;
+
+		private Writer(File store, File source, int dependencyFlags, int normalization) throws IOException {
+			this.store = store;
+			this.source = source;
+			this.dependencyFlags = dependencyFlags;
+			this.normalization = normalization;
+			this.temp = new File(store.getPath() + ".tmp");
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+			out.write(new byte[HEADER_BYTES]);
+			offset = HEADER_BYTES;
+		}
+
+		public void add(AnalyzedReview review) throws IOException {
+			AnalyzedSentence sentences[] = review.getSentences();
+			reviews.add(new int[] { review.getReviewId(), review.getScore(), sentenceCount, sentences.length });
+			for (AnalyzedSentence sentence : sentences)
+				add(sentence);
+		}
+
+		private void add(AnalyzedSentence sentence) throws IOException {
+			if (sentenceCount == sentenceOffsets.length) {
+				long grown[] = new long[sentenceOffsets.length * 2];
+				System.arraycopy(sentenceOffsets, 0, grown, 0, sentenceCount);
+				sentenceOffsets = grown;
+			}
+			sentenceOffsets[sentenceCount++] = offset;
+			String word[] = sentence.getWord();
+			byte sentenceTags[] = sentence.getTags();
+			DependencyGraph dependencies = sentence.isParsed() ? sentence.getDependencies() : null;
+			out.writeInt(word.length);
+			for (String w : word)
+				out.writeInt(id(w, tokenIds, tokens));
+			for (int i = 0; i < word.length; i++)
+				out.writeShort(i < sentenceTags.length && sentenceTags[i] != PosTags.NONE
+						? id(PosTags.tagName(sentenceTags[i]), tagIds, tags) : -1);
+			if (dependencies == null) {
+				out.writeInt(-1);
+				offset += 4 + 6L * word.length + 4;
+				return;
+			}
+			out.writeInt(dependencies.size());
+			for (int i = 0; i < dependencies.size(); i++) {
+				out.writeShort(id(DependencyGraph.relationName(dependencies.relation(i)), relationIds, relations));
+				out.writeInt(dependencies.governor(i));
+				out.writeInt(dependencies.dependent(i));
+			}
+			offset += 4 + 6L * word.length + 4 + 10L * dependencies.size();
+		}
+
+		/** Writes the tables, fills in the header and moves the finished store into place. */
+		public void close() throws IOException {
+			long tablesOffset = offset;
+			long idTableOffset = tablesOffset + writeStrings(tokens) + writeStrings(tags) + writeStrings(relations);
+			for (int[] review : reviews)
+				for (int v : review)
+					out.writeInt(v);
+			for (int i = 0; i < sentenceCount; i++)
+				out.writeLong(sentenceOffsets[i]);
+			idTableOffset += 16L * reviews.size() + 8L * sentenceCount;
+			// id in the high half, position in the low one: sorting orders by id, then position
+			long byId[] = new long[reviews.size()];
+			for (int i = 0; i < byId.length; i++)
+				byId[i] = (long) reviews.get(i)[0] << 32 | i;
+			Arrays.sort(byId);
+			for (long entry : byId) {
+				out.writeInt((int) (entry >> 32));
+				out.writeInt((int) entry);
+			}
+			out.close();
+
+			RandomAccessFile header = new RandomAccessFile(temp, "rw");
+			try {
+				header.writeInt(MAGIC);
+				header.writeInt(VERSION);
+				header.writeLong(source.length());
+				header.writeLong(source.lastModified());
+				header.writeInt(reviews.size());
+				header.writeInt(sentenceCount);
+				header.writeLong(tablesOffset);
+				header.writeInt(dependencyFlags);
+				header.writeInt(normalization);
+				header.writeLong(idTableOffset);
+			} finally {
+				header.close();
+			}
+			if (store.exists() && !store.delete())
+				throw new IOException("Cannot replace " + store);
+			if (!temp.renameTo(store))
+				throw new IOException("Cannot move " + temp + " to " + store);
+		}
+
+		/** Drops the partially written store. */
+		public void abort() {
+			try {
+				out.close();
+			} catch (IOException e) {
+				// nothing to keep anyway
+			}
+			temp.delete();
+		}
+
+		/** Writes a string table and returns its length in bytes. */
+		private long writeStrings(List<String> values) throws IOException {
+			long length = 4;
+			out.writeInt(values.size());
+			for (String value : values) {
+				byte bytes[] = value.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+				length += 4 + bytes.length;
+			}
+			return length;
+		}
+
+		private static int id(String value, Map<String, Integer> ids, List<String> values) {
+			Integer id = ids.get(value);
+			if (id == null) {
+				id = values.size();
+				ids.put(value, id);
+				values.add(value);
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * Read-only mapping of a file of any size, split into segments because a
+	 * single MappedByteBuffer cannot exceed 2GB.
+	 */
+	private static class MappedFile {
+
+		private static final int SEGMENT_BITS = 30;
+		private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+		private final MappedByteBuffer[] segments;
+
+		private MappedFile(MappedByteBuffer[] segments) {
+			this.segments = segments;
+		}
+
+		static MappedFile map(File file) throws IOException {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				long size = channel.size();
+				MappedByteBuffer segments[] = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+				for (int i = 0; i < segments.length; i++) {
+					long start = (long) i << SEGMENT_BITS;
+					segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+				}
+				return new MappedFile(segments);
+			} finally {
+				raf.close();
+			}
+		}
+
+		byte getByte(long pos) {
+			return segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & (SEGMENT_SIZE - 1)));
+		}
+
+		short getShort(long pos) {
+			ByteBuffer segment = segments[(int) (pos >>> SEGMENT_BITS)];
+			int off = (int) (pos & (SEGMENT_SIZE - 1));
+			if (off + 2 <= segment.limit())
+				return segment.getShort(off);
+			return (short) (((getByte(pos) & 0xff) << 8) | (getByte(pos + 1) & 0xff));
+		}
+
+		int getInt(long pos) {
+			ByteBuffer segment = segments[(int) (pos >>> SEGMENT_BITS)];
+			int off = (int) (pos & (SEGMENT_SIZE - 1));
+			if (off + 4 <= segment.limit())
+				return segment.getInt(off);
+			return ((getShort(pos) & 0xffff) << 16) | (getShort(pos + 2) & 0xffff);
+		}
+
+		long getLong(long pos) {
+			return ((long) getInt(pos) << 32) | (getInt(pos + 4) & 0xffffffffL);
+		}
+
+		void get(long pos, byte[] dst) {
+			for (int i = 0; i < dst.length; i++)
+				dst[i] = getByte(pos + i);
+		}
+	}
+}
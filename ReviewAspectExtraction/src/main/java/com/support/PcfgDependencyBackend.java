@@ -0,0 +1,39 @@
+package com.support;
+
+/**
+ * The Stanford englishPCFG parser: full constituency parse converted to
+ * typed dependencies, within a {@link ParseBudget}. The most accurate and by
+ * far the slowest backend.
+ */
+public class PcfgDependencyBackend implements DependencyBackend {
+
+	public static final String NAME = "pcfg";
+
+	private final ModelRegistry models;
+	private final int flags;
+	private final ParseBudget budget;
+
+	/** flags combines {@link SentenceAnalyzer#BASIC_DEPENDENCIES} and {@link SentenceAnalyzer#RULE_RELATIONS_ONLY}. */
+	public PcfgDependencyBackend(ModelRegistry models, int flags, ParseBudget budget) {
+		this.models = models;
+		this.flags = flags;
+		this.budget = budget;
+	}
+
+	public String getName() {
+		return NAME;
+	}
+
+	public int getFlags() {
+		return flags;
+	}
+
+	public ParseBudget getBudget() {
+		return budget;
+	}
+
+	public DependencyGraph parse(String[] word, byte[] tags) {
+		return DependencyParserImp.parse(models.parser(), word, (flags & SentenceAnalyzer.BASIC_DEPENDENCIES) == 0,
+				(flags & SentenceAnalyzer.RULE_RELATIONS_ONLY) != 0, budget);
+	}
+}
@@ -0,0 +1,93 @@
+package com.support;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of POS tag ids. Tags are interned into byte ids the
+ * first time the tagger (or a parsed store) produces them, and each id
+ * carries a bit mask of the tag classes the rules test, so checking for a
+ * noun or an adjective is a single bit test.
+ *
+ * The Penn Treebank tags are registered up front; a tag the tagger
+ * produces besides them is added under a lock. Lookups never lock: the
+ * name and mask of an id are written once, before the id is published.
+ *
+ * Id 0 ({@link #NONE}) stands for a token without a tag.
+ */
+public class PosTags {
+
+	public static final byte NONE = 0;
+
+	/** NN, NNS and NNP. */
+	public static final int NOUN = 1;
+	/** JJ, JJR and JJS. */
+	public static final int ADJ = 2;
+	/** VB, VBD, VBG, VBN, VBP, VBZ and MD. */
+	public static final int VERB = 4;
+	/** RB, RBR and RBS. */
+	public static final int ADV = 8;
+	/** DT, PDT, PRP$, CD and POS: what may stand between a verb and its object. */
+	public static final int DET = 16;
+
+	/** The tags of the Penn Treebank, the tag set of the bundled tagger. */
+	private static final String[] PENN = { "CC", "CD", "DT", "EX", "FW", "IN", "JJ", "JJR", "JJS", "LS", "MD", "NN",
+			"NNS", "NNP", "NNPS", "PDT", "POS", "PRP", "PRP$", "RB", "RBR", "RBS", "RP", "SYM", "TO", "UH", "VB", "VBD",
+			"VBG", "VBN", "VBP", "VBZ", "WDT", "WP", "WP$", "WRB", "#", "$", ".", ",", ":", "``", "''", "-LRB-",
+			"-RRB-" };
+
+	private static final ConcurrentHashMap<String, Byte> tagIds = new ConcurrentHashMap<String, Byte>();
+	private static final String[] tagNames = new String[Byte.MAX_VALUE + 1];
+	private static final byte[] tagMasks = new byte[Byte.MAX_VALUE + 1];
+	private static int size = 1;
+
+	static {
+		for (String tag : PENN)
+			add(tag);
+	}
+
+	private PosTags() {
+	}
+
+	public static byte tagId(String tag) {
+		if (tag == null)
+			return NONE;
+		Byte id = tagIds.get(tag);
+		return id != null ? id : add(tag);
+	}
+
+	private static synchronized byte add(String tag) {
+		Byte id = tagIds.get(tag);
+		if (id != null)
+			return id;
+		if (size > Byte.MAX_VALUE)
+			throw new IllegalStateException("More than " + Byte.MAX_VALUE + " POS tags");
+		byte added = (byte) size++;
+		tagNames[added] = tag;
+		tagMasks[added] = (byte) classify(tag);
+		tagIds.put(tag, added);
+		return added;
+	}
+
+	public static String tagName(byte id) {
+		return tagNames[id];
+	}
+
+	public static int mask(byte id) {
+		return tagMasks[id];
+	}
+
+	private static int classify(String tag) {
+		String t = tag.toUpperCase();
+		if (t.equals("NN") || t.equals("NNS") || t.equals("NNP"))
+			return NOUN;
+		if (t.equals("JJ") || t.equals("JJR") || t.equals("JJS"))
+			return ADJ;
+		if (t.startsWith("VB") || t.equals("MD"))
+			return VERB;
+		if (t.equals("RB") || t.equals("RBR") || t.equals("RBS"))
+			return ADV;
+		if (t.equals("DT") || t.equals("PDT") || t.equals("PRP$") || t.equals("CD") || t.equals("POS"))
+			return DET;
+		return 0;
+	}
+}
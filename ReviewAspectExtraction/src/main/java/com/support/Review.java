@@ -0,0 +1,32 @@
+package com.support;
+
+/**
+ * One review handed to {@link ReviewAspectExtractor#extract(Iterable)}: the
+ * id its annotations carry, the overall rating (its integer part, as read
+ * from the review file) and the raw text, which is normalized and split
+ * into sentences like a line of the review file.
+ */
+public class Review {
+
+	private final int reviewId;
+	private final int score;
+	private final String text;
+
+	public Review(int reviewId, int score, String text) {
+		this.reviewId = reviewId;
+		this.score = score;
+		this.text = text;
+	}
+
+	public int getReviewId() {
+		return reviewId;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public String getText() {
+		return text;
+	}
+}
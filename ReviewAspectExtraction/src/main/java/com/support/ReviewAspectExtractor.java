@@ -0,0 +1,842 @@
+package com.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * The aspect extraction as a library. An extractor is built once with the
+ * seed lexicon, the models and the rule settings, and can then extract any
+ * number of review sets, also from several threads at once: every call
+ * starts from the seed lexicon, learns its own dictionaries and returns
+ * them with the annotations in an {@link ExtractionResult}. The models,
+ * the sentence cache and the worker pool are shared by all calls; the
+ * words of reviews extracted in memory are interned in a symbol table layer
+ * of the call, so a long-running process does not accumulate them.
+ *
+ * <pre>
+ * ReviewAspectExtractor extractor = new ReviewAspectExtractor.Builder()
+ * 		.lexicon(new File("positive.txt"), new File("negative.txt")).build();
+ * ExtractionResult result = extractor.extract(reviews);
+ * </pre>
+ *
+ * Concurrent calls must not extract the same review file into the same
+ * store folder.
+ */
+public class ReviewAspectExtractor {
+
+	private final ModelRegistry models;
+	private final SymbolTable symbols;
+	private final DependencyBackend backend;
+	private final SentenceAnalyzer analyzer;
+	private final ReviewNormalizer normalizer;
+	private final NegationScope negation;
+	private final RuleEngine engine;
+	private final ParallelRuleRunner runner;
+	/** The seed lexicon; replaced, never modified, by {@link #learn(ExtractionResult)}. */
+	private volatile IntIntMap lexicon;
+	private final boolean naive;
+	private final TraceSink trace;
+	private final PrintStream progress;
+	private final Metrics metrics = Metrics.getDefault();
+
+	/** Settings of an extractor; everything but the lexicon has a default. */
+	public static class Builder {
+
+		private ModelRegistry models = ModelRegistry.getDefault();
+		private SymbolTable symbols = SymbolTable.getDefault();
+		private String parser = PcfgDependencyBackend.NAME;
+		private DependencyBackend backend;
+		private int dependencyFlags;
+		private ParseBudget parseBudget = new ParseBudget();
+		private SentenceCache cache;
+		private ReviewNormalizer normalizer = ReviewNormalizer.getDefault();
+		private List<String> negationCues = Arrays.asList(NegationScope.DEFAULT_CUES);
+		private int negationBefore = 2;
+		private int negationAfter = 1;
+		private int threads = 1;
+		private int batch = 4096;
+		private boolean naive;
+		private TraceSink trace = TraceSink.QUIET;
+		private PrintStream progress;
+		private final List<String> lexiconWords = new ArrayList<String>();
+		private final List<Integer> lexiconPolarities = new ArrayList<Integer>();
+
+		public Builder models(ModelRegistry models) {
+			this.models = models;
+			return this;
+		}
+
+		public Builder symbols(SymbolTable symbols) {
+			this.symbols = symbols;
+			return this;
+		}
+
+		/** The dependency backend by name: "pcfg" (default) or "heuristic". */
+		public Builder parser(String parser) {
+			this.parser = parser;
+			return this;
+		}
+
+		/** A dependency backend of its own, in place of {@link #parser(String)}. */
+		public Builder backend(DependencyBackend backend) {
+			this.backend = backend;
+			return this;
+		}
+
+		/** {@link SentenceAnalyzer} dependency flags for the PCFG backend. */
+		public Builder dependencyFlags(int dependencyFlags) {
+			this.dependencyFlags = dependencyFlags;
+			return this;
+		}
+
+		public Builder parseBudget(ParseBudget parseBudget) {
+			this.parseBudget = parseBudget;
+			return this;
+		}
+
+		public Builder cache(SentenceCache cache) {
+			this.cache = cache;
+			return this;
+		}
+
+		public Builder normalizer(ReviewNormalizer normalizer) {
+			this.normalizer = normalizer;
+			return this;
+		}
+
+		/** Negation and contrast cues with the words before and after a cue they flip. */
+		public Builder negation(List<String> cues, int before, int after) {
+			this.negationCues = cues;
+			this.negationBefore = before;
+			this.negationAfter = after;
+			return this;
+		}
+
+		/** Rule threads; above 1 the iterations run on a fork-join pool in batches of the given size. */
+		public Builder threads(int threads, int batch) {
+			this.threads = threads;
+			this.batch = batch;
+			return this;
+		}
+
+		/** Re-runs every sentence in every iteration instead of only those with a new word. */
+		public Builder naive(boolean naive) {
+			this.naive = naive;
+			return this;
+		}
+
+		public Builder trace(TraceSink trace) {
+			this.trace = trace;
+			return this;
+		}
+
+		/** Where the iteration lines go, or null (default) for none. */
+		public Builder progress(PrintStream progress) {
+			this.progress = progress;
+			return this;
+		}
+
+		/** Adds a seed opinion word with its polarity (1 or -1); a later entry for the same word wins. */
+		public Builder opinionWord(String word, int polarity) {
+			lexiconWords.add(word.trim().toLowerCase());
+			lexiconPolarities.add(polarity);
+			return this;
+		}
+
+		/** Adds the seed lexicon files, one word per line, positive words first. */
+		public Builder lexicon(File positive, File negative) throws IOException {
+			readLexicon(positive, 1);
+			readLexicon(negative, -1);
+			return this;
+		}
+
+		private void readLexicon(File file, int polarity) throws IOException {
+			BufferedReader in = new BufferedReader(new FileReader(file));
+			try {
+				String line;
+				while ((line = in.readLine()) != null)
+					opinionWord(line, polarity);
+			} finally {
+				in.close();
+			}
+		}
+
+		/**
+		 * Applies the command line switches: -parser, -basicdeps,
+		 * -rulerelations, -maxparselength, -parsetimeout, -emoticons,
+		 * -negationcues, -negationbefore, -negationafter, -threads/-parallel,
+		 * -batch and -naive.
+		 */
+		public Builder options(RunOptions options) throws IOException {
+			parser(options.get("parser", PcfgDependencyBackend.NAME));
+			dependencyFlags((options.has("basicdeps") ? SentenceAnalyzer.BASIC_DEPENDENCIES : 0)
+					| (options.has("rulerelations") ? SentenceAnalyzer.RULE_RELATIONS_ONLY : 0));
+			parseBudget(new ParseBudget(options.getInt("maxparselength", 0), options.getLong("parsetimeout", 0)));
+			if (options.has("emoticons"))
+				normalizer(new ReviewNormalizer(ReviewNormalizer.readTable(new File(options.get("emoticons", null)))));
+			negation(options.has("negationcues") ? NegationScope.readCues(new File(options.get("negationcues", null)))
+					: Arrays.asList(NegationScope.DEFAULT_CUES), options.getInt("negationbefore", 2),
+					options.getInt("negationafter", 1));
+			threads(options.getThreads(), options.getInt("batch", 4096));
+			naive(options.has("naive"));
+			return this;
+		}
+
+		public ReviewAspectExtractor build() {
+			return new ReviewAspectExtractor(this);
+		}
+	}
+
+	private ReviewAspectExtractor(Builder builder) {
+		models = builder.models;
+		symbols = builder.symbols;
+		if (builder.backend != null)
+			backend = builder.backend;
+		else if (builder.parser.equals(PcfgDependencyBackend.NAME))
+			backend = new PcfgDependencyBackend(models, builder.dependencyFlags, builder.parseBudget);
+		else if (builder.parser.equals(HeuristicDependencyBackend.NAME))
+			backend = new HeuristicDependencyBackend();
+		else
+			throw new IllegalArgumentException("Unknown parser: " + builder.parser);
+		analyzer = new SentenceAnalyzer(models,
+				builder.cache != null ? builder.cache : SentenceCache.withDefaultBudget(), backend);
+		normalizer = builder.normalizer;
+		negation = new NegationScope(symbols, builder.negationCues, builder.negationBefore, builder.negationAfter);
+		engine = new RuleEngine(symbols, negation);
+		runner = builder.threads > 1 ? new ParallelRuleRunner(builder.threads, builder.batch) : null;
+		IntIntMap seed = new IntIntMap(Math.max(16, builder.lexiconWords.size()));
+		for (int i = 0; i < builder.lexiconWords.size(); i++)
+			seed.put(symbols.intern(builder.lexiconWords.get(i)), builder.lexiconPolarities.get(i));
+		lexicon = seed;
+		naive = builder.naive;
+		trace = builder.trace;
+		progress = builder.progress;
+	}
+
+	public ModelRegistry getModels() {
+		return models;
+	}
+
+	public DependencyBackend getBackend() {
+		return backend;
+	}
+
+	public SentenceAnalyzer getAnalyzer() {
+		return analyzer;
+	}
+
+	public ReviewNormalizer getNormalizer() {
+		return normalizer;
+	}
+
+	/** Loads the models the backend needs now rather than on the first sentence. */
+	public void warmUp() {
+		models.warmUp(backend instanceof PcfgDependencyBackend);
+	}
+
+	/**
+	 * Adds the opinion words a call of this extractor learned to the seed
+	 * lexicon of the calls that start afterwards. Words already in the
+	 * lexicon keep their polarity.
+	 */
+	public synchronized void learn(ExtractionResult result) {
+		IntIntMap seed = new IntIntMap(lexicon);
+		// interned here by name: the result may hold the ids of a layer that is dropped with it
+		for (Map.Entry<String, Integer> learned : result.getOpinionWords().entrySet()) {
+			int id = symbols.intern(learned.getKey());
+			if (!seed.containsKey(id))
+				seed.put(id, learned.getValue());
+		}
+		lexicon = seed;
+	}
+
+	/** Size of the seed lexicon the next call starts from. */
+	public int getLexiconSize() {
+		return lexicon.size();
+	}
+
+	/** Stops the rule worker pool; the extractor cannot be used afterwards. */
+	public void close() {
+		if (runner != null)
+			runner.shutdown();
+	}
+
+	/** Extracts the aspects of reviews held in memory; nothing is read or written. */
+	public ExtractionResult extract(Iterable<Review> reviews) throws IOException {
+		List<AnalyzedReview> analyzed = new ArrayList<AnalyzedReview>();
+		for (Review review : reviews)
+			analyzed.add(new AnalyzedReview(review.getReviewId(), review.getScore(),
+					ReviewFileReader.sentencesOf(normalizer, review.getText()), analyzer));
+		return extractAnalyzed(analyzed);
+	}
+
+	/**
+	 * Tags the sentences of the reviews now and parses those the rules can
+	 * match with the seed lexicon, which the first iteration of any
+	 * extraction of them parses anyway. The reviews can then be extracted in
+	 * groups with {@link #extractAnalyzed(List)}, e.g. the requests of one
+	 * server micro-batch, each with a fixpoint of its own.
+	 */
+	public List<AnalyzedReview> analyze(Iterable<Review> reviews) {
+		IntIntMap seed = lexicon;
+		SymbolTable layer = new SymbolTable(symbols);
+		IntIntMap noFeatures = new IntIntMap();
+		List<AnalyzedReview> analyzed = new ArrayList<AnalyzedReview>();
+		for (Review review : reviews) {
+			AnalyzedReview one = new AnalyzedReview(review.getReviewId(), review.getScore(),
+					ReviewFileReader.sentencesOf(normalizer, review.getText()), analyzer);
+			for (AnalyzedSentence sentence : one.getSentences())
+				if (RuleEngine.canFire(sentence.getWordIds(layer), sentence.getTagMasks(), seed, noFeatures))
+					sentence.getDependencies();
+			analyzed.add(one);
+		}
+		return analyzed;
+	}
+
+	/**
+	 * Extracts the aspects of reviews returned by {@link #analyze(Iterable)}.
+	 * The words of the reviews are interned in a layer over the symbol table
+	 * of the extractor, which is dropped with the result.
+	 */
+	public ExtractionResult extractAnalyzed(final List<AnalyzedReview> analyzed) throws IOException {
+		IntIntMap seed = lexicon;
+		return run(new Corpus() {
+			Iterable<AnalyzedReview> all() {
+				return analyzed;
+			}
+
+			Iterable<AnalyzedReview> affected(SemiNaiveScheduler scheduler, IntIntMap delta) {
+				return scheduler.affected(analyzed, delta);
+			}
+
+			int reviews() {
+				return analyzed.size();
+			}
+		}, new SymbolTable(symbols), seed);
+	}
+
+	/**
+	 * Extracts the aspects of a review file (see {@link ReviewFileReader}).
+	 * The analyzed corpus is kept in a {@link ParsedCorpusStore} in storeDir
+	 * and reused by later calls for the same, unchanged file. The result
+	 * holds a snapshot from which later reviews can be added.
+	 */
+	public ExtractionResult extract(File reviewFile, File storeDir) throws IOException {
+		return run(new FileCorpus(reviewFile, ParsedCorpusStore.storeFileFor(reviewFile, storeDir), 1), symbols,
+				lexicon);
+	}
+
+	/** Reads a snapshot written by {@link ExtractionSnapshot#write(File)} for use with this extractor. */
+	public ExtractionSnapshot readSnapshot(File file) throws IOException {
+		return ExtractionSnapshot.read(file, symbols);
+	}
+
+	/**
+	 * Adds the reviews of a new review file to the corpus of a snapshot. The
+	 * fixpoint starts from the learned state of the snapshot (the seed
+	 * lexicon of this extractor is not used) and runs the rules over the new
+	 * reviews, then only over the old and new sentences containing a word
+	 * learned since; the adjective-noun pattern is only re-run on the old
+	 * reviews with a new opinion word, and only the new features are counted
+	 * over the old sentences. The old sentences are read from the stores of
+	 * the snapshot, never tagged or parsed again. The new reviews get the ids
+	 * following those of the snapshot, as if the file were appended to the
+	 * corpus, and their store is kept in storeDir.
+	 *
+	 * The opinion words, features and frequencies found are those of a run
+	 * over the whole corpus, as are the annotations; the values in
+	 * initialFeatures.txt may differ from it, since the old sentences are not
+	 * all run again.
+	 */
+	public ExtractionResult extract(ExtractionSnapshot snapshot, File reviewFile, File storeDir) throws IOException {
+		if (snapshot.symbols != symbols)
+			throw new IllegalArgumentException("The snapshot was read into another symbol table");
+		if (snapshot.dependencyFlags != backend.getFlags() || snapshot.normalization != normalizer.getFingerprint())
+			throw new IllegalArgumentException("The snapshot was taken with other dependency or normalizer settings");
+		final List<ParsedCorpusStore> old = new ArrayList<ParsedCorpusStore>();
+		for (ExtractionSnapshot.Segment segment : snapshot.getSegments()) {
+			ParsedCorpusStore store = segment.open(snapshot.dependencyFlags, snapshot.normalization, backend,
+					analyzer.getCache());
+			if (store == null)
+				throw new IOException("The store " + segment.getStore() + " of the snapshot is missing or was rebuilt");
+			old.add(store);
+		}
+		int firstReviewId = snapshot.getNextReviewId();
+		int firstSentence = snapshot.getSentenceCount();
+		final FileCorpus added = new FileCorpus(reviewFile,
+				ParsedCorpusStore.storeFileFor(reviewFile, storeDir, firstReviewId), firstReviewId);
+		Corpus corpus = new Corpus() {
+			Iterable<AnalyzedReview> first() {
+				return added.all();
+			}
+
+			Iterable<AnalyzedReview> all() {
+				List<Iterable<AnalyzedReview>> parts = new ArrayList<Iterable<AnalyzedReview>>(old);
+				parts.add(added.all());
+				return concat(parts);
+			}
+
+			Iterable<AnalyzedReview> affected(SemiNaiveScheduler scheduler, IntIntMap delta) {
+				List<Iterable<AnalyzedReview>> parts = new ArrayList<Iterable<AnalyzedReview>>();
+				for (ParsedCorpusStore store : old)
+					parts.add(scheduler.affected(store, delta));
+				parts.add(added.affected(scheduler, delta));
+				return concat(parts);
+			}
+
+			ParsedCorpusStore.Writer writer() {
+				return added.writer();
+			}
+
+			void iterated() throws IOException {
+				added.iterated();
+			}
+
+			void failed() {
+				added.failed();
+			}
+
+			int reviews() {
+				return added.reviews();
+			}
+
+			int sentences() {
+				return added.sentences();
+			}
+		};
+
+		IntIntMap opDict = new IntIntMap(snapshot.opDict);
+		IntIntMap feature = new IntIntMap(snapshot.features);
+		AnnotationStore annote = new AnnotationStore(symbols);
+		annote.addAll(snapshot.annotations);
+		// the postings of the old stores also find the reviews and sentences the new words change after the fixpoint
+		SemiNaiveScheduler scheduler = new SemiNaiveScheduler(symbols, opDict, feature);
+		int iterations = fixpoint(corpus, engine, naive ? null : scheduler, opDict, feature, annote);
+		int reviews = corpus.reviews();
+		int sentences = corpus.sentences();
+		if (progress != null)
+			progress.println("Corpus: " + reviews + " reviews, " + sentences + " sentences added to "
+					+ firstSentence + " sentences");
+		IntIntMap initialFeatures = new IntIntMap(feature);
+
+		// the old adjective-noun features, unless the rules have found them now, keep the sentence that introduced them
+		FrequencyPass frequencyPass = new FrequencyPass(symbols, negation, trace);
+		IntIntMap allFeatures = new IntIntMap(feature);
+		for (int f = 0; f < snapshot.patternFeatures.size(); f++) {
+			int id = snapshot.patternFeatures.keyAt(f);
+			if (!allFeatures.containsKey(id)) {
+				allFeatures.put(id, 1);
+				frequencyPass.setAddedAt(id, snapshot.patternFeatures.valueAt(f));
+			}
+		}
+		// the pattern annotations of an old review only change with a new opinion word in it
+		IntIntMap newOpinions = new IntIntMap();
+		for (int o = snapshot.opDict.size(); o < opDict.size(); o++) {
+			int word = scheduler.word(opDict.keyAt(o));
+			if (word != SymbolTable.NONE)
+				newOpinions.put(word, 1);
+		}
+		long time = metrics.stage("pattern_features").start();
+		TreeMap<Integer, AnnotationStore> rerun = new TreeMap<Integer, AnnotationStore>();
+		for (int s = 0; s < old.size() && newOpinions.size() > 0; s++) {
+			ParsedCorpusStore store = old.get(s);
+			int lastReview = -1;
+			for (int sentence : scheduler.postings(store).sentencesContaining(newOpinions)) {
+				int review = store.reviewOf(sentence);
+				if (review == lastReview)
+					continue;
+				lastReview = review;
+				AnalyzedReview analyzed = store.review(review);
+				AnnotationStore found = new AnnotationStore(symbols);
+				frequencyPass.addPatternFeatures(analyzed, snapshot.getSegments().get(s).getFirstSentence()
+						+ store.firstSentenceOf(review), opDict, allFeatures, found);
+				rerun.put(analyzed.getReviewId(), found);
+			}
+		}
+		AnnotationStore patternAnnote = new AnnotationStore(symbols);
+		AnnotationStore previous = snapshot.patternAnnotations;
+		for (int a = 0; a < previous.size(); a++) {
+			while (!rerun.isEmpty() && rerun.firstKey() < previous.reviewId(a))
+				patternAnnote.addAll(rerun.pollFirstEntry().getValue());
+			if (rerun.isEmpty() || rerun.firstKey() != previous.reviewId(a))
+				patternAnnote.add(previous.reviewId(a), previous.aspectId(a), previous.polarity(a));
+		}
+		while (!rerun.isEmpty())
+			patternAnnote.addAll(rerun.pollFirstEntry().getValue());
+		int sentenceNo = firstSentence;
+		for (AnalyzedReview review : added.all())
+			sentenceNo = frequencyPass.addPatternFeatures(review, sentenceNo, opDict, allFeatures, patternAnnote);
+		metrics.stage("pattern_features").stop(time);
+
+		// the old frequencies stay and the new sentences are added; features new to the rules are counted over the old sentences too
+		time = metrics.stage("feature_count").start();
+		int newCounts[] = frequencyPass.count(added.all(), firstSentence, allFeatures);
+		IntIntMap recount = new IntIntMap();
+		IntIntMap firstWords = new IntIntMap();
+		for (int f = 0; f < feature.size(); f++) {
+			int id = feature.keyAt(f);
+			if (!snapshot.features.containsKey(id) && frequencyPass.addedAt(id) == 0) {
+				recount.put(id, 0);
+				firstWords.put(symbols.intern(symbols.name(id).split(" ")[0].toLowerCase()), 1);
+			}
+		}
+		if (recount.size() > 0)
+			for (ParsedCorpusStore store : old) {
+				int oldCounts[] = frequencyPass.count(SemiNaiveScheduler.select(store,
+						scheduler.postings(store).sentencesContaining(firstWords)), 0, recount);
+				for (int f = 0; f < oldCounts.length; f++)
+					recount.add(recount.keyAt(f), oldCounts[f]);
+			}
+		IntIntMap frequencies = new IntIntMap(allFeatures.size());
+		IntIntMap featureFreq = new IntIntMap(allFeatures.size());
+		for (int f = 0; f < allFeatures.size(); f++) {
+			int id = allFeatures.keyAt(f);
+			int freq = newCounts[f] + (recount.containsKey(id) ? recount.get(id, 0) : snapshot.frequencies.get(id, 0));
+			frequencies.put(id, freq);
+			if (freq > 0)
+				featureFreq.put(id, freq);
+		}
+		metrics.stage("feature_count").stop(time);
+
+		AnnotationStore fixpointAnnote = annote;
+		annote = new AnnotationStore(symbols);
+		annote.addAll(fixpointAnnote);
+		annote.addAll(patternAnnote);
+		IntIntMap patternFeatures = new IntIntMap();
+		for (int f = feature.size(); f < allFeatures.size(); f++)
+			patternFeatures.put(allFeatures.keyAt(f), frequencyPass.addedAt(allFeatures.keyAt(f)));
+		List<ExtractionSnapshot.Segment> segments = new ArrayList<ExtractionSnapshot.Segment>(snapshot.getSegments());
+		segments.add(added.segment(firstSentence));
+		ExtractionSnapshot updated = new ExtractionSnapshot(symbols, snapshot.dependencyFlags,
+				snapshot.normalization, segments, opDict, initialFeatures, patternFeatures, frequencies,
+				fixpointAnnote, patternAnnote);
+		return finish(symbols, opDict, initialFeatures, featureFreq, annote, iterations, reviews, sentences, updated);
+	}
+
+	/** The reviews of one call, as the fixpoint and the frequency pass see them. */
+	private abstract static class Corpus {
+
+		/** The reviews of the first iteration, all of them unless overridden. */
+		Iterable<AnalyzedReview> first() {
+			return all();
+		}
+
+		abstract Iterable<AnalyzedReview> all();
+
+		/** The reviews with a sentence containing a word of the delta, restricted to those sentences. */
+		abstract Iterable<AnalyzedReview> affected(SemiNaiveScheduler scheduler, IntIntMap delta);
+
+		/** Receives every review of the first iteration, or null. */
+		ParsedCorpusStore.Writer writer() {
+			return null;
+		}
+
+		/** Called after every iteration. */
+		void iterated() throws IOException {
+		}
+
+		/** Called when an iteration throws. */
+		void failed() {
+		}
+
+		abstract int reviews();
+
+		int sentences() {
+			int sentences = 0;
+			for (AnalyzedReview review : all())
+				sentences += review.getSentences().length;
+			return sentences;
+		}
+
+		/** The corpus as part of a snapshot, or null when it cannot be resumed. */
+		ExtractionSnapshot.Segment segment(int firstSentence) throws IOException {
+			return null;
+		}
+	}
+
+	/**
+	 * A review file, read (and stored) in the first iteration and read back
+	 * from its memory-mapped store in the others, or read from the store
+	 * throughout when it already has one.
+	 */
+	private class FileCorpus extends Corpus {
+
+		private final File reviewFile;
+		private final File storeFile;
+		private final int firstReviewId;
+		private final ReviewFileReader reader;
+		private final int dependencyFlags = backend.getFlags();
+		private ParsedCorpusStore stored;
+		private ParsedCorpusStore.Writer storeWriter;
+
+		FileCorpus(File reviewFile, File storeFile, int firstReviewId) throws IOException {
+			this.reviewFile = reviewFile;
+			this.storeFile = storeFile;
+			this.firstReviewId = firstReviewId;
+			reader = new ReviewFileReader(reviewFile, analyzer, normalizer, firstReviewId);
+			stored = ParsedCorpusStore.open(storeFile, reviewFile, dependencyFlags, normalizer.getFingerprint(),
+					backend, analyzer.getCache());
+			if (progress != null)
+				progress.println(stored != null ? "Using parsed corpus " + storeFile : "Parsing " + reviewFile);
+			if (stored == null) {
+				warmUp();
+				storeWriter = ParsedCorpusStore.create(storeFile, reviewFile, dependencyFlags,
+						normalizer.getFingerprint());
+			}
+		}
+
+		Iterable<AnalyzedReview> all() {
+			// after the first iteration the analyzed corpus is read back from the memory-mapped store
+			return stored != null ? stored : reader;
+		}
+
+		Iterable<AnalyzedReview> affected(SemiNaiveScheduler scheduler, IntIntMap delta) {
+			return stored != null ? scheduler.affected(stored, delta) : all();
+		}
+
+		ParsedCorpusStore.Writer writer() {
+			return storeWriter;
+		}
+
+		void iterated() throws IOException {
+			if (storeWriter == null)
+				return;
+			if (reader.getMalformedLines() > 0 && progress != null)
+				progress.println("Skipped " + reader.getMalformedLines() + " malformed lines of " + reviewFile);
+			storeWriter.close();
+			storeWriter = null;
+			stored = ParsedCorpusStore.open(storeFile, reviewFile, dependencyFlags, normalizer.getFingerprint(),
+					backend, analyzer.getCache());
+		}
+
+		void failed() {
+			// no half-written store is left behind for the next run
+			if (storeWriter != null)
+				storeWriter.abort();
+			storeWriter = null;
+		}
+
+		int reviews() {
+			return stored != null ? stored.getReviewCount() : -1;
+		}
+
+		int sentences() {
+			return stored != null ? stored.getSentenceCount() : -1;
+		}
+
+		ExtractionSnapshot.Segment segment(int firstSentence) throws IOException {
+			if (stored == null)
+				return null;
+			return new ExtractionSnapshot.Segment(storeFile, reviewFile.getPath(), stored.getSourceLength(),
+					stored.getSourceModified(), firstReviewId, reader.countLines(), firstSentence,
+					stored.getSentenceCount());
+		}
+	}
+
+	/** The reviews of the parts one after the other. */
+	private static Iterable<AnalyzedReview> concat(final List<Iterable<AnalyzedReview>> parts) {
+		return new Iterable<AnalyzedReview>() {
+			public Iterator<AnalyzedReview> iterator() {
+				return new Iterator<AnalyzedReview>() {
+					private int part = 0;
+					private Iterator<AnalyzedReview> current = Collections.<AnalyzedReview> emptyList().iterator();
+
+					public boolean hasNext() {
+						while (!current.hasNext() && part < parts.size())
+							current = parts.get(part++).iterator();
+						return current.hasNext();
+					}
+
+					public AnalyzedReview next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						return current.next();
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Runs the fixpoint from the seed lexicon, then the frequency pass and the
+	 * final filter, with the words in table: the extractor's own, or a layer
+	 * over it made after the seed was read.
+	 */
+	private ExtractionResult run(Corpus corpus, SymbolTable table, IntIntMap seed) throws IOException {
+		IntIntMap opDict = new IntIntMap(seed);
+		IntIntMap feature = new IntIntMap();
+		AnnotationStore annote = new AnnotationStore(table);
+		RuleEngine engine = table == symbols ? this.engine : new RuleEngine(table, negation);
+		// semi-naive evaluation: after the first full pass only sentences containing a word added in the previous iteration are re-run
+		int iterations = fixpoint(corpus, engine, naive ? null : new SemiNaiveScheduler(table, opDict, feature),
+				opDict, feature, annote);
+		int reviews = corpus.reviews();
+		int sentences = corpus.sentences();
+		if (progress != null && reviews >= 0)
+			progress.println("Corpus: " + reviews + " reviews, " + sentences + " sentences");
+		IntIntMap initialFeatures = new IntIntMap(feature);
+		int fixpointAnnotations = annote.size();
+
+		// re-uses the analyzed corpus, so no sentence is tagged again
+		Iterable<AnalyzedReview> all = corpus.all();
+		// features found by the adjective+noun pattern are only counted from the sentence that introduced them on
+		FrequencyPass frequencyPass = new FrequencyPass(table, negation, trace);
+		long time = metrics.stage("pattern_features").start();
+		frequencyPass.addPatternFeatures(all, opDict, feature, annote);
+		metrics.stage("pattern_features").stop(time);
+		// all features are counted in one scan per sentence with an Aho-Corasick automaton
+		time = metrics.stage("feature_count").start();
+		int freq[] = frequencyPass.count(all, 0, feature);
+		IntIntMap featureFreq = new IntIntMap(freq.length);
+		for (int f = 0; f < freq.length; f++)
+			if (freq[f] > 0)
+				featureFreq.put(feature.keyAt(f), freq[f]);
+		metrics.stage("feature_count").stop(time);
+
+		ExtractionSnapshot snapshot = null;
+		ExtractionSnapshot.Segment segment = corpus.segment(0);
+		if (segment != null) {
+			IntIntMap patternFeatures = new IntIntMap();
+			IntIntMap frequencies = new IntIntMap(freq.length);
+			for (int f = 0; f < freq.length; f++) {
+				frequencies.put(feature.keyAt(f), freq[f]);
+				if (f >= initialFeatures.size())
+					patternFeatures.put(feature.keyAt(f), frequencyPass.addedAt(feature.keyAt(f)));
+			}
+			AnnotationStore fixpointAnnote = new AnnotationStore(table);
+			AnnotationStore patternAnnote = new AnnotationStore(table);
+			for (int a = 0; a < annote.size(); a++)
+				(a < fixpointAnnotations ? fixpointAnnote : patternAnnote).add(annote.reviewId(a), annote.aspectId(a),
+						annote.polarity(a));
+			snapshot = new ExtractionSnapshot(table, backend.getFlags(), normalizer.getFingerprint(),
+					Collections.singletonList(segment), opDict, initialFeatures, patternFeatures, frequencies,
+					fixpointAnnote, patternAnnote);
+		}
+		return finish(table, opDict, initialFeatures, featureFreq, annote, iterations, reviews, sentences, snapshot);
+	}
+
+	/** Applies the final filter: counted features without sentence punctuation, annotations joined on their symbol ids. */
+	private ExtractionResult finish(SymbolTable table, IntIntMap opDict, IntIntMap initialFeatures,
+			IntIntMap featureFreq, AnnotationStore annote, int iterations, int reviews, int sentences,
+			ExtractionSnapshot snapshot) {
+		FinalFeatureFilter finalFilter = new FinalFeatureFilter(table, featureFreq);
+		long time = metrics.stage("final_filter").start();
+		int kept[] = finalFilter.filter(annote);
+		metrics.stage("final_filter").stop(time);
+		return new ExtractionResult(table, opDict, initialFeatures, featureFreq, finalFilter.getFinalFeatures(),
+				annote, kept, iterations, reviews, sentences, snapshot);
+	}
+
+	/**
+	 * Applies the rules until an iteration adds nothing; returns the number of
+	 * iterations. Without a scheduler every iteration after the first runs
+	 * over the whole corpus.
+	 */
+	private int fixpoint(Corpus corpus, RuleEngine engine, SemiNaiveScheduler scheduler, IntIntMap opDict,
+			IntIntMap feature, AnnotationStore annote) throws IOException {
+		IntIntMap delta = null;
+		int loopiter = 0;
+		int added;
+		boolean completed = false;
+		try {
+			do {
+				Iterable<AnalyzedReview> reviews = loopiter == 0 ? corpus.first()
+						: delta != null ? corpus.affected(scheduler, delta) : corpus.all();
+				ParsedCorpusStore.Writer storeWriter = corpus.writer();
+				int additions[] = new int[RuleEngine.RULES.length];
+				// the words added are counted from the dictionaries, which hold every word once
+				int opinionsBefore = opDict.size(), featuresBefore = feature.size();
+				long iterationStart = System.nanoTime();
+				// counted here rather than by the engine, which other calls may be using at the same time
+				long applied = 0;
+				if (runner != null) {
+					// fork-join mode: the dictionaries stay fixed during an iteration and the per-worker results are merged at its end
+					RuleAccumulator found = runner.run(engine, reviews, opDict, feature, storeWriter);
+					found.applyTo(opDict, feature, annote);
+					additions = found.getAdditions();
+					applied = found.getSentences();
+				} else {
+					for (AnalyzedReview review : reviews) {
+						int reviewid = review.getReviewId();
+						boolean traced = trace.isSampled(reviewid);
+						if (traced)
+							trace.trace(reviewid + " OVERALL=" + review.getScore());
+						for (AnalyzedSentence analyzed : review.getSentences()) {
+							// the sentence is only parsed if one of the rules can match it
+							engine.apply(analyzed, reviewid, review.getPolarity(), opDict, feature, annote, additions);
+							applied++;
+							if (traced)
+								trace.trace(describe(analyzed));
+						}
+						// stored after the rules ran, so the sentences they needed are stored parsed
+						if (storeWriter != null)
+							storeWriter.add(review);
+					}
+				}
+				int opinionsAdded = opDict.size() - opinionsBefore, featuresAdded = feature.size() - featuresBefore;
+				added = opinionsAdded + featuresAdded;
+				corpus.iterated();
+				if (scheduler != null) {
+					int evaluated = scheduler.getLastSentences();
+					boolean full = delta == null;
+					delta = scheduler.delta();
+					if (progress != null) {
+						progress.println("Iteration " + loopiter + " added " + added + " " + Arrays.toString(additions)
+								+ " evaluated " + (full ? "all sentences" : evaluated + " sentences"));
+						progress.println("Iteration " + loopiter + " delta " + delta.size() + " words");
+					}
+				} else if (progress != null)
+					progress.println("Iteration " + loopiter + " added " + added + " " + Arrays.toString(additions));
+				recordIteration(loopiter, additions, featuresAdded, opinionsAdded, applied,
+						System.nanoTime() - iterationStart);
+				loopiter++;
+			} while (added > 0);
+			completed = true;
+		} finally {
+			if (!completed)
+				corpus.failed();
+		}
+		return loopiter;
+	}
+
+	/** One trace record: the sentence, its tokens with their POS tags and its dependencies if parsed. */
+	private static String describe(AnalyzedSentence analyzed) {
+		StringBuilder record = new StringBuilder("Review Sentence=").append(analyzed.getSentence()).append("\n ");
+		String word[] = analyzed.getWord();
+		String wordPOS[] = analyzed.getWordPOS();
+		for (int i = 0; i < word.length; i++)
+			record.append(' ').append(word[i]).append('/').append(wordPOS[i]);
+		if (analyzed.isParsed())
+			for (String dependency[] : analyzed.getDependencies().toMatrix(word))
+				record.append("\n  ").append(dependency[0]).append(' ').append(dependency[1]).append(' ')
+						.append(dependency[2]);
+		return record.toString();
+	}
+
+	/** Words added (per rule, and as features or opinion words), sentences evaluated and time of one iteration. */
+	private void recordIteration(int iteration, int additions[], int features, int opinions, long sentences,
+			long nanos) {
+		for (int r = 0; r < additions.length; r++)
+			metrics.counter("rule_additions_total", "Words a rule added to the dictionaries.", "rule",
+					RuleEngine.RULES[r]).add(additions[r]);
+		metrics.addIterationValue("features_added", iteration, features);
+		metrics.addIterationValue("opinion_words_added", iteration, opinions);
+		metrics.addIterationValue("sentences_evaluated", iteration, sentences);
+		metrics.addIterationValue("milliseconds", iteration, nanos / 1000000);
+	}
+}
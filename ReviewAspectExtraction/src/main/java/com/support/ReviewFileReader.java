@@ -0,0 +1,243 @@
+package com.support;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.ling.Sentence;
+import edu.stanford.nlp.process.DocumentPreprocessor;
+
+/**
+ * Streams a review file in the "ProductId,Rating,Text" format (UTF-8,
+ * gzip-compressed when the name ends in ".gz"), normalizes the text with a
+ * {@link ReviewNormalizer} and splits it into sentences; the sentences are analyzed when the review's
+ * sentences are first requested. Every call to {@link #iterator()} reads
+ * the file again from the start; the file stays open until
+ * the iterator is read to the end or closed.
+ *
+ * The review id is the 1-based line number in the file. Lines without a
+ * rating and a text are counted (see {@link #getMalformedLines()}) and
+ * skipped.
+ */
+public class ReviewFileReader implements Iterable<AnalyzedReview> {
+
+	private static final int BUFFER_BYTES = 1 << 16;
+	private static final Metrics.Timer NORMALIZE = Metrics.getDefault().stage("normalize");
+	private static final Metrics.Timer SPLIT = Metrics.getDefault().stage("split");
+	private static final Metrics.Counter REVIEWS = Metrics.getDefault().counter("reviews_total",
+			"Reviews read from the review file.");
+	private static final Metrics.Counter SENTENCES = Metrics.getDefault().counter("sentences_total",
+			"Sentences split from the reviews read.");
+
+	private final File file;
+	private final SentenceAnalyzer analyzer;
+	private final ReviewNormalizer normalizer;
+	private final int firstReviewId;
+	private final AtomicLong malformed = new AtomicLong();
+
+	/** Iterator over the reviews of the file; close it when not all of them are read. */
+	public interface ReviewIterator extends Iterator<AnalyzedReview>, Closeable {
+	}
+
+	public ReviewFileReader(File file, SentenceAnalyzer analyzer) {
+		this(file, analyzer, ReviewNormalizer.getDefault());
+	}
+
+	public ReviewFileReader(File file, SentenceAnalyzer analyzer, ReviewNormalizer normalizer) {
+		this(file, analyzer, normalizer, 1);
+	}
+
+	/**
+	 * Reads a file whose first line is review number firstReviewId, for a
+	 * file that continues a corpus.
+	 */
+	public ReviewFileReader(File file, SentenceAnalyzer analyzer, ReviewNormalizer normalizer, int firstReviewId) {
+		this.file = file;
+		this.analyzer = analyzer;
+		this.normalizer = normalizer;
+		this.firstReviewId = firstReviewId;
+	}
+
+	public static boolean isCompressed(File file) {
+		return file.getName().endsWith(".gz");
+	}
+
+	/** Lines skipped as malformed during the last complete or running pass. */
+	public long getMalformedLines() {
+		return malformed.get();
+	}
+
+	/** Lines in the file, malformed ones included; the review ids of a file continuing it start after them. */
+	public int countLines() throws IOException {
+		LineInput in = new LineInput(open());
+		try {
+			int lines = 0;
+			while (in.readLine() != null)
+				lines++;
+			return lines;
+		} finally {
+			in.close();
+		}
+	}
+
+	private InputStream open() throws IOException {
+		InputStream in = new FileInputStream(file);
+		return isCompressed(file) ? new GZIPInputStream(in, BUFFER_BYTES) : in;
+	}
+
+	public ReviewIterator iterator() {
+		final LineInput in;
+		try {
+			in = new LineInput(open());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		malformed.set(0);
+		return new ReviewIterator() {
+			private int reviewid = firstReviewId - 1;
+			private AnalyzedReview next = advance();
+
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			public AnalyzedReview next() {
+				if (next == null)
+					throw new NoSuchElementException();
+				AnalyzedReview review = next;
+				next = advance();
+				return review;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			public void close() throws IOException {
+				next = null;
+				in.close();
+			}
+
+			private AnalyzedReview advance() {
+				try {
+					String line;
+					while ((line = in.readLine()) != null) {
+						AnalyzedReview review = analyze(++reviewid, line);
+						if (review != null)
+							return review;
+						malformed.incrementAndGet();
+					}
+					in.close();
+					return null;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+
+	/** Parses one line, or returns null when it is malformed. */
+	private AnalyzedReview analyze(int reviewid, String sCurrentLine) {
+		int first = sCurrentLine.indexOf(',');
+		int second = first < 0 ? -1 : sCurrentLine.indexOf(',', first + 1);
+		if (second < 0 || second == sCurrentLine.length() - 1)
+			return null;
+		// the integer part of the rating, e.g. 4 for "4.0"
+		int score = 0;
+		int digits = 0;
+		for (int i = first + 1; i < second; i++) {
+			char c = sCurrentLine.charAt(i);
+			if (c >= '0' && c <= '9' && digits < 9) {
+				score = score * 10 + (c - '0');
+				digits++;
+			} else if (c == '.' && digits > 0)
+				break;
+			else if (c != ' ' || digits > 0)
+				return null;
+		}
+		if (digits == 0)
+			return null;
+		return new AnalyzedReview(reviewid, score, sentencesOf(normalizer, sCurrentLine.substring(second + 1)),
+				analyzer);
+	}
+
+	/** The normalized sentences of a review text, counted as one review read. */
+	static String[] sentencesOf(ReviewNormalizer normalizer, String reviewText) {
+		long time = NORMALIZE.start();
+		String text = normalizer.normalize(reviewText);
+		NORMALIZE.stop(time);
+		time = SPLIT.start();
+		List<String> sentenceList = splitSentences(text);
+		SPLIT.stop(time);
+		REVIEWS.increment();
+		SENTENCES.add(sentenceList.size());
+		return sentenceList.toArray(new String[sentenceList.size()]);
+	}
+
+	/** Line reader over raw bytes. Lines end at '\n'; a trailing '\r' is dropped. */
+	private static class LineInput {
+
+		private final InputStream in;
+		private final byte[] buffer = new byte[BUFFER_BYTES];
+		private int pos;
+		private int limit;
+		private byte[] line = new byte[256];
+
+		LineInput(InputStream in) {
+			this.in = in;
+		}
+
+		String readLine() throws IOException {
+			int length = 0;
+			while (true) {
+				if (pos == limit) {
+					limit = in.read(buffer);
+					pos = 0;
+					if (limit <= 0) {
+						limit = 0;
+						return length == 0 ? null : decode(length);
+					}
+				}
+				byte b = buffer[pos++];
+				if (b == '\n')
+					return decode(length);
+				if (length == line.length)
+					line = Arrays.copyOf(line, length * 2);
+				line[length++] = b;
+			}
+		}
+
+		private String decode(int length) {
+			if (length > 0 && line[length - 1] == '\r')
+				length--;
+			return new String(line, 0, length, StandardCharsets.UTF_8);
+		}
+
+		void close() throws IOException {
+			in.close();
+		}
+	}
+
+	public static List<String> splitSentences(String processedreviewText) {
+		Reader reader = new StringReader(processedreviewText);
+		DocumentPreprocessor dp = new DocumentPreprocessor(reader);
+		List<String> sentenceList = new ArrayList<String>();
+		for (List<HasWord> sentence : dp)
+			sentenceList.add(Sentence.listToString(sentence));
+		return sentenceList;
+	}
+}
@@ -0,0 +1,160 @@
+package com.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Normalizes the text of a review before it is split into sentences: a run
+ * of dots is collapsed to its last dot, the text is lower-cased and every
+ * entry of the replacement table (the emoticons and the '_' and '-'
+ * characters) is replaced. All of it is done in one left-to-right pass into
+ * a per-thread buffer, so the cost is linear in the length of the review.
+ *
+ * Table entries are matched against the lower-cased, dot-collapsed text;
+ * at a given position the longest matching entry wins, so ":-)" is removed
+ * as a whole before '-' is mapped on its own.
+ */
+public class ReviewNormalizer {
+
+	/** The emoticons and characters the preprocessing has always replaced by a space. */
+	public static final String[] DEFAULT_ENTRIES = { ":o)", ":-)", ";-)", "_", "-" };
+
+	private static final ReviewNormalizer DEFAULT = new ReviewNormalizer();
+
+	/** Entries by first character (ASCII), longest first; the others are in {@link #otherEntries}. */
+	private final String[][][] asciiEntries = new String[128][][];
+	private final Map<Character, String[][]> otherEntries = new HashMap<Character, String[][]>();
+	private final int fingerprint;
+	private final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+		protected StringBuilder initialValue() {
+			return new StringBuilder(256);
+		}
+	};
+
+	public static ReviewNormalizer getDefault() {
+		return DEFAULT;
+	}
+
+	/** The default table. */
+	public ReviewNormalizer() {
+		this(new LinkedHashMap<String, String>());
+	}
+
+	/**
+	 * The default table extended by the given entries (text to replacement);
+	 * an entry for a default text overrides its replacement.
+	 */
+	public ReviewNormalizer(Map<String, String> entries) {
+		Map<String, String> table = new LinkedHashMap<String, String>();
+		for (String text : DEFAULT_ENTRIES)
+			table.put(text, " ");
+		for (Map.Entry<String, String> entry : entries.entrySet())
+			if (!entry.getKey().isEmpty())
+				table.put(entry.getKey().toLowerCase(), entry.getValue());
+		Map<Character, List<String[]>> byFirst = new HashMap<Character, List<String[]>>();
+		for (Map.Entry<String, String> entry : table.entrySet()) {
+			List<String[]> list = byFirst.get(entry.getKey().charAt(0));
+			if (list == null)
+				byFirst.put(entry.getKey().charAt(0), list = new ArrayList<String[]>());
+			list.add(new String[] { entry.getKey(), entry.getValue() });
+		}
+		for (Map.Entry<Character, List<String[]>> first : byFirst.entrySet()) {
+			String candidates[][] = first.getValue().toArray(new String[first.getValue().size()][]);
+			Arrays.sort(candidates, new Comparator<String[]>() {
+				public int compare(String[] a, String[] b) {
+					return b[0].length() - a[0].length();
+				}
+			});
+			char c = first.getKey();
+			if (c < asciiEntries.length)
+				asciiEntries[c] = candidates;
+			else
+				otherEntries.put(c, candidates);
+		}
+		fingerprint = table.hashCode();
+	}
+
+	/**
+	 * Reads replacement entries, one per line: the text, optionally followed
+	 * by a tab and its replacement (a space when absent). Blank lines and
+	 * lines starting with '#' are skipped.
+	 */
+	public static Map<String, String> readTable(File file) throws IOException {
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.trim().isEmpty() || line.startsWith("#"))
+					continue;
+				int tab = line.indexOf('\t');
+				if (tab < 0)
+					entries.put(line.trim(), " ");
+				else
+					entries.put(line.substring(0, tab).trim(), line.substring(tab + 1));
+			}
+		} finally {
+			in.close();
+		}
+		return entries;
+	}
+
+	/** Changes whenever the table changes; stored with the parsed corpus. */
+	public int getFingerprint() {
+		return fingerprint;
+	}
+
+	public String normalize(String text) {
+		StringBuilder out = buffers.get();
+		out.setLength(0);
+		int n = text.length();
+		for (int i = 0; i < n;) {
+			char c = text.charAt(i);
+			if (c == '.' && i + 1 < n && text.charAt(i + 1) == '.') {
+				i++;
+				continue;
+			}
+			char lower = Character.toLowerCase(c);
+			String candidates[][] = lower < asciiEntries.length ? asciiEntries[lower] : otherEntries.get(lower);
+			int matched = -1;
+			if (candidates != null)
+				for (String[] candidate : candidates)
+					if ((matched = match(text, i, candidate[0])) >= 0) {
+						out.append(candidate[1]);
+						i = matched;
+						break;
+					}
+			if (matched < 0) {
+				out.append(lower);
+				i++;
+			}
+		}
+		String normalized = out.toString();
+		if (out.capacity() > 1 << 16)
+			buffers.remove();
+		return normalized;
+	}
+
+	/** End of the match of entry at position i of the collapsed, lower-cased text, or -1. */
+	private static int match(String text, int i, String entry) {
+		int n = text.length();
+		for (int k = 0; k < entry.length(); k++, i++) {
+			while (i + 1 < n && text.charAt(i) == '.' && text.charAt(i + 1) == '.')
+				i++;
+			if (i >= n || Character.toLowerCase(text.charAt(i)) != entry.charAt(k))
+				return -1;
+		}
+		return i;
+	}
+}
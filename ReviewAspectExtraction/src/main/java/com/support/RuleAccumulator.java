@@ -0,0 +1,153 @@
+package com.support;
+
+/**
+ * What the rules found in a range of reviews during one parallel iteration:
+ * feature count increments, newly learned opinion words and annotations.
+ *
+ * Workers never write to the shared dictionaries. Each sentence runs
+ * against an overlay of the dictionaries as they were at the start of the
+ * iteration, and its additions are folded into the worker's accumulator.
+ * Accumulators of adjacent ranges are merged left to right, so the result
+ * only depends on review order, never on thread scheduling. A new word is
+ * credited once, to the rule that found it first in review order, however
+ * many workers find it.
+ */
+public class RuleAccumulator {
+
+	private final IntIntMap featureDelta = new IntIntMap();
+	private final IntIntMap opinions = new IntIntMap();
+	/** New opinion words and new features, to the rule that added them first. */
+	private final IntIntMap opinionRules = new IntIntMap();
+	private final IntIntMap featureRules = new IntIntMap();
+	private final AnnotationStore annotations;
+	private int sentences;
+
+	/** symbols is the table of the engine the accumulator is used with. */
+	public RuleAccumulator(SymbolTable symbols) {
+		annotations = new AnnotationStore(symbols);
+	}
+
+	/** Applies the rules to one sentence without touching the shared dictionaries. */
+	public void apply(RuleEngine engine, AnalyzedSentence sentence, int reviewid, int POLVAL, IntIntMap opDict,
+			IntIntMap feature) {
+		OverlayMap opDictView = new OverlayMap(opDict);
+		OverlayMap featureView = new OverlayMap(feature);
+		int found[] = new int[RuleEngine.RULES.length];
+		engine.apply(sentence, reviewid, POLVAL, opDictView, featureView, annotations, found);
+		sentences++;
+		credit(opDictView, opDict, RuleEngine.OPINION_RULES, found, opinionRules);
+		credit(featureView, feature, RuleEngine.FEATURE_RULES, found, featureRules);
+		for (int i = 0; i < opDictView.local(); i++)
+			if (!opinions.containsKey(opDictView.keyAt(i)))
+				opinions.put(opDictView.keyAt(i), opDictView.valueAt(i));
+		for (int i = 0; i < featureView.local(); i++) {
+			int key = featureView.keyAt(i);
+			featureDelta.add(key, featureView.valueAt(i) - feature.get(key, 0));
+		}
+	}
+
+	/**
+	 * Matches the words one sentence added to the shared dictionary with the
+	 * rules that added them: the rules run in the given order and each adds
+	 * its new words to the view in turn, found[rule] of them.
+	 */
+	private static void credit(OverlayMap view, IntIntMap shared, int[] rules, int[] found, IntIntMap addedBy) {
+		int r = 0;
+		for (int i = 0; i < view.local(); i++) {
+			int key = view.keyAt(i);
+			if (shared.containsKey(key))
+				continue;
+			while (r < rules.length && found[rules[r]] == 0)
+				r++;
+			if (r == rules.length)
+				return;
+			found[rules[r]]--;
+			if (!addedBy.containsKey(key))
+				addedBy.put(key, rules[r]);
+		}
+	}
+
+	/** Appends the results of the range that follows this one. */
+	public RuleAccumulator merge(RuleAccumulator next) {
+		for (int i = 0; i < next.featureDelta.size(); i++)
+			featureDelta.add(next.featureDelta.keyAt(i), next.featureDelta.valueAt(i));
+		for (int i = 0; i < next.opinions.size(); i++)
+			if (!opinions.containsKey(next.opinions.keyAt(i)))
+				opinions.put(next.opinions.keyAt(i), next.opinions.valueAt(i));
+		annotations.addAll(next.annotations);
+		for (int i = 0; i < next.opinionRules.size(); i++)
+			if (!opinionRules.containsKey(next.opinionRules.keyAt(i)))
+				opinionRules.put(next.opinionRules.keyAt(i), next.opinionRules.valueAt(i));
+		for (int i = 0; i < next.featureRules.size(); i++)
+			if (!featureRules.containsKey(next.featureRules.keyAt(i)))
+				featureRules.put(next.featureRules.keyAt(i), next.featureRules.valueAt(i));
+		sentences += next.sentences;
+		return this;
+	}
+
+	/**
+	 * Writes the accumulated results into the shared state at the end of an
+	 * iteration and returns how many new opinion words and features that added.
+	 */
+	public int applyTo(IntIntMap opDict, IntIntMap feature, AnnotationStore annote) {
+		int added = 0;
+		for (int i = 0; i < opinions.size(); i++) {
+			if (!opDict.containsKey(opinions.keyAt(i))) {
+				opDict.put(opinions.keyAt(i), opinions.valueAt(i));
+				added++;
+			}
+		}
+		for (int i = 0; i < featureDelta.size(); i++) {
+			if (!feature.containsKey(featureDelta.keyAt(i)))
+				added++;
+			feature.add(featureDelta.keyAt(i), featureDelta.valueAt(i));
+		}
+		annote.addAll(annotations);
+		return added;
+	}
+
+	/** Sentences the rules were applied to. */
+	public int getSentences() {
+		return sentences;
+	}
+
+	/** Per-rule additions: the new words each rule found first. */
+	public int[] getAdditions() {
+		int additions[] = new int[RuleEngine.RULES.length];
+		for (int i = 0; i < opinionRules.size(); i++)
+			additions[opinionRules.valueAt(i)]++;
+		for (int i = 0; i < featureRules.size(); i++)
+			additions[featureRules.valueAt(i)]++;
+		return additions;
+	}
+
+	/**
+	 * Read-through view of a shared dictionary: reads see the shared entries
+	 * plus anything written through the view, writes stay local. keyAt and
+	 * valueAt iterate the local entries only.
+	 */
+	private static class OverlayMap extends IntIntMap {
+
+		private final IntIntMap base;
+
+		OverlayMap(IntIntMap base) {
+			super(4);
+			this.base = base;
+		}
+
+		@Override
+		public boolean containsKey(int key) {
+			return super.containsKey(key) || base.containsKey(key);
+		}
+
+		@Override
+		public int get(int key, int missing) {
+			return super.containsKey(key) ? super.get(key, missing) : base.get(key, missing);
+		}
+
+		/** Number of entries written through the view. */
+		int local() {
+			return super.size();
+		}
+	}
+}
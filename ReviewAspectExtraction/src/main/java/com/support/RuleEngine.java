@@ -0,0 +1,402 @@
+package com.support;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The double-propagation rules, applied to one analyzed sentence at a time.
+ *
+ * R1.1/R1.2 extract features through opinion adjectives, R4.1 extracts
+ * opinion adjectives conjoined with known ones, R3.1/R3.2 extract features
+ * through known features and R2.1/R2.2 extract opinion adjectives through
+ * known features. The rules run in that order, and each one sees what the
+ * previous ones added for the same sentence.
+ *
+ * Every rule starts from the sentence tokens: a token is looked up in the
+ * opinion or feature dictionary and only the dependency edges of matching
+ * tokens are visited, so the cost depends on the sentence, not on the size
+ * of the dictionaries. As in the original rules, edges are matched by word:
+ * a token also follows the edges of the other tokens with the same word
+ * (see {@link Ends}). Tokens, phrases and dictionary keys are
+ * {@link SymbolTable} ids.
+ *
+ * Every rule is timed and its matches are counted in {@link Metrics}.
+ */
+public class RuleEngine {
+
+	public static final int R11 = 0, R12 = 1, R41 = 2, R31 = 3, R32 = 4, R21 = 5, R22 = 6;
+	public static final String[] RULES = { "R1.1", "R1.2", "R4.1", "R3.1", "R3.2", "R2.1", "R2.2" };
+	/** The rules adding features and those adding opinion words, each in the order {@link #apply} runs them. */
+	static final int[] FEATURE_RULES = { R11, R12, R31, R32 }, OPINION_RULES = { R41, R21, R22 };
+	/** The rules argument of apply selecting every rule: bit (1 << rule) per rule. */
+	public static final int ALL_RULES = (1 << RULES.length) - 1;
+
+	private static final int[] NO_PHRASES = new int[0];
+
+	private static final Metrics.Timer[] RULE_TIME = new Metrics.Timer[RULES.length];
+	private static final Metrics.Counter[] RULE_FIRINGS = new Metrics.Counter[RULES.length];
+	private static final Metrics.Counter SENTENCES = Metrics.getDefault().counter("rule_sentences_total",
+			"Sentences the rules were applied to.");
+	private static final Metrics.Counter SKIPPED = Metrics.getDefault().counter("rule_sentences_skipped_total",
+			"Sentences no rule could match, skipped before parsing.");
+	private static final Metrics.Counter EDGES_VISITED = Metrics.getDefault().counter("rule_edges_visited_total",
+			"Dependency edges visited by the rules.");
+	static {
+		for (int r = 0; r < RULES.length; r++) {
+			RULE_TIME[r] = Metrics.getDefault().timer("rule_seconds", "Time of one rule on one sentence.", "rule",
+					RULES[r]);
+			RULE_FIRINGS[r] = Metrics.getDefault().counter("rule_firings_total",
+					"Matches of a rule, whether or not they added a word.", "rule", RULES[r]);
+		}
+	}
+
+	private final SymbolTable symbols;
+	private final NegationScope negation;
+
+	public RuleEngine() {
+		this(SymbolTable.getDefault(), new NegationScope());
+	}
+
+	public RuleEngine(SymbolTable symbols, NegationScope negation) {
+		this.symbols = symbols;
+		this.negation = negation;
+	}
+
+	public SymbolTable getSymbols() {
+		return symbols;
+	}
+
+	public NegationScope getNegation() {
+		return negation;
+	}
+
+	/**
+	 * Runs all rules over the sentence. opDict (opinion word to polarity) and
+	 * feature (feature to count) are read and extended in place, annotations
+	 * are appended to annote, and additions[rule] is incremented for every
+	 * opinion word or feature a rule adds.
+	 */
+	public void apply(AnalyzedSentence sentence, int reviewid, int POLVAL, IntIntMap opDict, IntIntMap feature,
+			AnnotationStore annote, int[] additions) {
+		apply(sentence, reviewid, POLVAL, opDict, feature, annote, additions, ALL_RULES);
+	}
+
+	/** Runs only the rules whose bit (1 << rule) is set in rules, e.g. to measure them one at a time. */
+	public void apply(AnalyzedSentence sentence, int reviewid, int POLVAL, IntIntMap opDict, IntIntMap feature,
+			AnnotationStore annote, int[] additions, int rules) {
+		int wordId[] = sentence.getWordIds(symbols);
+		byte tagMask[] = sentence.getTagMasks();
+		SENTENCES.increment();
+		if (!canFire(wordId, tagMask, opDict, feature)) {
+			SKIPPED.increment();
+			return;
+		}
+		BitSet negated = negation.scope(wordId);
+		DependencyGraph dependencies = sentence.getDependencies();
+		Ends ends = new Ends(), ends2 = new Ends();
+
+		int edges = 0;
+		long time = RULE_TIME[R11].start();
+
+		// Rule R1.1
+		for (int posi = 0; (rules & (1 << R11)) != 0 && posi < wordId.length; posi++) {
+			if (!opDict.containsKey(wordId[posi]) || (tagMask[posi] & PosTags.ADJ) == 0)
+				continue;
+			int polarity = opDict.get(wordId[posi], 0);
+			int val = NegationScope.polarity(negated, posi) * polarity;
+			ends.of(dependencies, wordId, posi);
+			for (int k = 0; k < ends.size; k++) {
+				edges++;
+				int t = related(dependencies, ends, k, false);
+				if (t != DependencyGraph.ROOT)
+					for (int phrase : nounPhrases(wordId[t], wordId, tagMask))
+						addFeature(feature, reviewid, phrase, val, annote, additions, R11);
+			}
+		}
+		RULE_TIME[R11].stop(time);
+
+		time = RULE_TIME[R12].start();
+		// Rule R1.2
+		for (int posi = 0; (rules & (1 << R12)) != 0 && posi < wordId.length; posi++) {
+			if (!opDict.containsKey(wordId[posi]) || (tagMask[posi] & PosTags.ADJ) == 0)
+				continue;
+			int polarity = opDict.get(wordId[posi], 0);
+			int val = NegationScope.polarity(negated, posi) * polarity;
+			ends.of(dependencies, wordId, posi);
+			for (int k = 0; k < ends.size; k++) {
+				edges++;
+				int t = related(dependencies, ends, k, false);
+				if (t == DependencyGraph.ROOT)
+					continue;
+				ends2.of(dependencies, wordId, t);
+				for (int k2 = 0; k2 < ends2.size; k2++) {
+					edges++;
+					int t2 = related(dependencies, ends2, k2, false);
+					if (t2 != DependencyGraph.ROOT)
+						for (int phrase : nounPhrases(wordId[t2], wordId, tagMask))
+							addFeature(feature, reviewid, phrase, val, annote, additions, R12);
+				}
+			}
+		}
+		RULE_TIME[R12].stop(time);
+
+		time = RULE_TIME[R41].start();
+		// Rule R4.1
+		IntIntMap opDict1 = new IntIntMap();
+		for (int posi = 0; (rules & (1 << R41)) != 0 && posi < wordId.length; posi++) {
+			if (!opDict.containsKey(wordId[posi]) || (tagMask[posi] & PosTags.ADJ) == 0)
+				continue;
+			int polarity = opDict.get(wordId[posi], 0);
+			ends.of(dependencies, wordId, posi);
+			for (int k = 0; k < ends.size; k++) {
+				edges++;
+				int t = conjunct(dependencies, ends, k);
+				if (t != DependencyGraph.ROOT && isAdjective(wordId[t], wordId, tagMask))
+					stageOpinion(opDict, opDict1, wordId[t], polarity, additions, R41);
+			}
+		}
+		mergeOpinions(opDict, opDict1);
+		RULE_TIME[R41].stop(time);
+
+		time = RULE_TIME[R31].start();
+		// Rule R3.1
+		IntIntMap feature1 = new IntIntMap();
+		for (int posi = 0; (rules & (1 << R31)) != 0 && posi < wordId.length; posi++) {
+			if (!feature.containsKey(wordId[posi]) || (tagMask[posi] & PosTags.NOUN) == 0)
+				continue;
+			ends.of(dependencies, wordId, posi);
+			for (int k = 0; k < ends.size; k++) {
+				edges++;
+				int t = conjunct(dependencies, ends, k);
+				if (t != DependencyGraph.ROOT)
+					for (int phrase : nounPhrases(wordId[t], wordId, tagMask))
+						stageFeature(feature, feature1, phrase, additions, R31);
+			}
+		}
+		mergeFeatures(feature, feature1);
+		RULE_TIME[R31].stop(time);
+
+		time = RULE_TIME[R32].start();
+		// Rule R3.2
+		feature1 = new IntIntMap();
+		for (int posi = 0; (rules & (1 << R32)) != 0 && posi < wordId.length; posi++) {
+			if (!feature.containsKey(wordId[posi]) || (tagMask[posi] & PosTags.NOUN) == 0)
+				continue;
+			ends.of(dependencies, wordId, posi);
+			for (int k = 0; k < ends.size; k++) {
+				edges++;
+				int t = related(dependencies, ends, k, false);
+				if (t == DependencyGraph.ROOT)
+					continue;
+				ends2.of(dependencies, wordId, t);
+				for (int k2 = 0; k2 < ends2.size; k2++) {
+					edges++;
+					int t2 = related(dependencies, ends2, k2, false);
+					if (t2 != DependencyGraph.ROOT)
+						for (int phrase : nounPhrases(wordId[t2], wordId, tagMask))
+							stageFeature(feature, feature1, phrase, additions, R32);
+				}
+			}
+		}
+		mergeFeatures(feature, feature1);
+		RULE_TIME[R32].stop(time);
+
+		time = RULE_TIME[R21].start();
+		// Rule R2.1
+		opDict1 = new IntIntMap();
+		for (int posi = 0; (rules & (1 << R21)) != 0 && posi < wordId.length; posi++) {
+			if (!feature.containsKey(wordId[posi]) || (tagMask[posi] & PosTags.NOUN) == 0)
+				continue;
+			ends.of(dependencies, wordId, posi);
+			for (int k = 0; k < ends.size; k++) {
+				edges++;
+				int t = related(dependencies, ends, k, true);
+				if (t != DependencyGraph.ROOT && isAdjective(wordId[t], wordId, tagMask))
+					addOpinion(opDict, opDict1, reviewid, wordId[t], POLVAL, annote, additions, R21);
+			}
+		}
+		RULE_TIME[R21].stop(time);
+
+		time = RULE_TIME[R22].start();
+		// Rule R2.2, merged into opDict together with R2.1
+		for (int posi = 0; (rules & (1 << R22)) != 0 && posi < wordId.length; posi++) {
+			if (!feature.containsKey(wordId[posi]) || (tagMask[posi] & PosTags.NOUN) == 0)
+				continue;
+			ends.of(dependencies, wordId, posi);
+			for (int k = 0; k < ends.size; k++) {
+				edges++;
+				int t = related(dependencies, ends, k, true);
+				if (t == DependencyGraph.ROOT)
+					continue;
+				// the second hop accepts any relation when the first one is "dep"
+				boolean anyRelation = (dependencies.mask(ends.edge[k]) & DependencyGraph.DEP) != 0;
+				ends2.of(dependencies, wordId, t);
+				for (int k2 = 0; k2 < ends2.size; k2++) {
+					edges++;
+					int t2 = anyRelation ? ends2.other[k2] : related(dependencies, ends2, k2, false);
+					if (t2 != DependencyGraph.ROOT && isAdjective(wordId[t2], wordId, tagMask))
+						addOpinion(opDict, opDict1, reviewid, wordId[t2], POLVAL, annote, additions, R22);
+				}
+			}
+		}
+		mergeOpinions(opDict, opDict1);
+		RULE_TIME[R22].stop(time);
+		EDGES_VISITED.add(edges);
+	}
+
+	/**
+	 * Whether any rule can match the sentence: every rule starts from an
+	 * adjective in opDict or a noun in feature. Sentences without one are
+	 * skipped before their dependencies are requested, so they are not
+	 * parsed until a later iteration adds one of their words.
+	 */
+	static boolean canFire(int[] wordId, byte[] tagMask, IntIntMap opDict, IntIntMap feature) {
+		for (int posi = 0; posi < wordId.length; posi++)
+			if (((tagMask[posi] & PosTags.ADJ) != 0 && opDict.containsKey(wordId[posi]))
+					|| ((tagMask[posi] & PosTags.NOUN) != 0 && feature.containsKey(wordId[posi])))
+				return true;
+		return false;
+	}
+
+	private static void addFeature(IntIntMap feature, int reviewid, int phrase, int val, AnnotationStore annote,
+			int[] additions, int rule) {
+		RULE_FIRINGS[rule].increment();
+		if (!feature.containsKey(phrase)) {
+			feature.put(phrase, 1);
+			additions[rule]++;
+		} else
+			feature.add(phrase, 1);
+		annotate(annote, reviewid, phrase, val);
+	}
+
+	private static void addOpinion(IntIntMap opDict, IntIntMap opDict1, int reviewid, int tword, int POLVAL,
+			AnnotationStore annote, int[] additions, int rule) {
+		stageOpinion(opDict, opDict1, tword, POLVAL, additions, rule);
+		annotate(annote, reviewid, tword, POLVAL);
+	}
+
+	private static void stageOpinion(IntIntMap opDict, IntIntMap opDict1, int tword, int polarity, int[] additions,
+			int rule) {
+		RULE_FIRINGS[rule].increment();
+		if (opDict1.containsKey(tword))
+			return;
+		opDict1.put(tword, polarity);
+		if (!opDict.containsKey(tword))
+			additions[rule]++;
+	}
+
+	private static void stageFeature(IntIntMap feature, IntIntMap feature1, int phrase, int[] additions, int rule) {
+		RULE_FIRINGS[rule].increment();
+		if (!feature1.containsKey(phrase)) {
+			feature1.put(phrase, 1);
+			if (!feature.containsKey(phrase))
+				additions[rule]++;
+		} else
+			feature1.add(phrase, 1);
+	}
+
+	private static void mergeOpinions(IntIntMap opDict, IntIntMap opDict1) {
+		for (int i = 0; i < opDict1.size(); i++)
+			if (!opDict.containsKey(opDict1.keyAt(i)))
+				opDict.put(opDict1.keyAt(i), opDict1.valueAt(i));
+	}
+
+	private static void mergeFeatures(IntIntMap feature, IntIntMap feature1) {
+		for (int i = 0; i < feature1.size(); i++)
+			feature.add(feature1.keyAt(i), feature1.valueAt(i));
+	}
+
+	static void annotate(AnnotationStore annote, int reviewid, int aspect, int polarity) {
+		annote.add(reviewid, aspect, polarity);
+	}
+
+	/**
+	 * The token at the other end of the k-th edge end if its edge is
+	 * amod/nsubj/dobj, or ROOT. R2.x pass withDep to accept "dep" as well.
+	 */
+	private static int related(DependencyGraph dependencies, Ends ends, int k, boolean withDep) {
+		int mask = DependencyGraph.MOD_SUBJ_OBJ | (withDep ? DependencyGraph.DEP : 0);
+		if ((dependencies.mask(ends.edge[k]) & mask) == 0)
+			return DependencyGraph.ROOT;
+		return ends.other[k];
+	}
+
+	/** The token at the other end of the k-th edge end if its edge is conj*, or ROOT. */
+	private static int conjunct(DependencyGraph dependencies, Ends ends, int k) {
+		if ((dependencies.mask(ends.edge[k]) & DependencyGraph.CONJ) == 0)
+			return DependencyGraph.ROOT;
+		return ends.other[k];
+	}
+
+	/**
+	 * The edge ends a rule follows from a token. The original rules compared
+	 * the governor and the dependent word of every edge with the token's word,
+	 * so a token follows every edge touching a token with the same word, once
+	 * per end holding that word, in edge order; when the word occurs once in
+	 * the sentence these are the token's own edges. Reused for every token of
+	 * a sentence.
+	 */
+	static final class Ends {
+
+		int size;
+		int[] edge = new int[16];
+		/** The token at the other end, or ROOT. */
+		int[] other = new int[16];
+
+		void of(DependencyGraph dependencies, int[] wordId, int token) {
+			size = 0;
+			int word = wordId[token];
+			boolean repeated = false;
+			for (int i = 0; i < wordId.length && !repeated; i++)
+				repeated = i != token && wordId[i] == word;
+			int n = repeated ? dependencies.size() : dependencies.degree(token);
+			for (int k = 0; k < n; k++) {
+				int e = repeated ? k : dependencies.incident(token, k);
+				int governor = dependencies.governor(e), dependent = dependencies.dependent(e);
+				if (governor != DependencyGraph.ROOT && wordId[governor] == word)
+					add(e, dependent);
+				if (dependent != DependencyGraph.ROOT && wordId[dependent] == word)
+					add(e, governor);
+			}
+		}
+
+		private void add(int e, int token) {
+			if (size == edge.length) {
+				edge = Arrays.copyOf(edge, size * 2);
+				other = Arrays.copyOf(other, size * 2);
+			}
+			edge[size] = e;
+			other[size++] = token;
+		}
+	}
+
+	/**
+	 * Every inner token equal to target that is tagged as a noun, widened by a
+	 * noun directly before and after it. Once widened the phrase no longer
+	 * matches single tokens, which ends the scan.
+	 */
+	int[] nounPhrases(int target, int[] wordId, byte[] tagMask) {
+		int phrases[] = NO_PHRASES;
+		for (int loopi = 1; loopi < wordId.length - 1; loopi++) {
+			if (wordId[loopi] != target || (tagMask[loopi] & PosTags.NOUN) == 0)
+				continue;
+			int phrase = target;
+			if ((tagMask[loopi - 1] & PosTags.NOUN) != 0)
+				phrase = symbols.phrase(wordId[loopi - 1], phrase);
+			if ((tagMask[loopi + 1] & PosTags.NOUN) != 0)
+				phrase = symbols.phrase(phrase, wordId[loopi + 1]);
+			phrases = Arrays.copyOf(phrases, phrases.length + 1);
+			phrases[phrases.length - 1] = phrase;
+			if (phrase != target)
+				break;
+		}
+		return phrases;
+	}
+
+	private static boolean isAdjective(int target, int[] wordId, byte[] tagMask) {
+		for (int loopi = 0; loopi < wordId.length; loopi++)
+			if (wordId[loopi] == target && (tagMask[loopi] & PosTags.ADJ) != 0)
+				return true;
+		return false;
+	}
+}
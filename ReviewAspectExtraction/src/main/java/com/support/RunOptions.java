@@ -0,0 +1,57 @@
+package com.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Optional command line switches that follow the three positional file
+ * arguments, written as -name or -name=value.
+ */
+public class RunOptions {
+
+	private final Map<String, String> values = new LinkedHashMap<String, String>();
+
+	public RunOptions(String[] args, int first) {
+		for (int i = first; i < args.length; i++) {
+			String arg = args[i];
+			if (!arg.startsWith("-"))
+				throw new IllegalArgumentException("Unexpected argument: " + arg);
+			while (arg.startsWith("-"))
+				arg = arg.substring(1);
+			int eq = arg.indexOf('=');
+			if (eq < 0)
+				values.put(arg, "");
+			else
+				values.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+	}
+
+	public boolean has(String name) {
+		return values.containsKey(name);
+	}
+
+	public String get(String name, String defaultValue) {
+		String value = values.get(name);
+		return value == null || value.isEmpty() ? defaultValue : value;
+	}
+
+	public int getInt(String name, int defaultValue) {
+		String value = get(name, null);
+		return value == null ? defaultValue : Integer.parseInt(value);
+	}
+
+	public long getLong(String name, long defaultValue) {
+		String value = get(name, null);
+		return value == null ? defaultValue : Long.parseLong(value);
+	}
+
+	/**
+	 * Worker threads requested with -threads=N; -parallel alone means one per
+	 * core. Returns 1 (sequential) when neither is given.
+	 */
+	public int getThreads() {
+		if (has("threads"))
+			return Math.max(1, getInt("threads", Runtime.getRuntime().availableProcessors()));
+		return has("parallel") ? Runtime.getRuntime().availableProcessors() : 1;
+	}
+}
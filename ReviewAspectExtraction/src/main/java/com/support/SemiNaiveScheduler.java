@@ -0,0 +1,173 @@
+package com.support;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Semi-naive evaluation of the double-propagation fixpoint. A rule can only
+ * find something new in a sentence when one of its tokens became an opinion
+ * word or a feature since the sentence was last evaluated, because the rules
+ * look the dictionaries up by sentence token. So after the first full pass
+ * each iteration only re-runs the sentences containing a word added in the
+ * previous one, found through {@link SentencePostings}. A corpus made of
+ * several stores asks for the affected reviews of each of them in turn.
+ *
+ * Multi-word features never match a single token and do not reschedule
+ * anything.
+ */
+public class SemiNaiveScheduler {
+
+	private final SymbolTable symbols;
+	private final IntIntMap opDict;
+	private final IntIntMap feature;
+	/** Dictionary entries already seen; the maps only ever grow at the end. */
+	private int knownOpinions;
+	private int knownFeatures;
+	/** Postings per corpus, built on the first call for it. */
+	private final Map<Object, SentencePostings> postings = new IdentityHashMap<Object, SentencePostings>();
+	private int lastDelta;
+	private int lastSentences;
+
+	/** Remembers the current dictionary words; only words added later count as delta. */
+	public SemiNaiveScheduler(SymbolTable symbols, IntIntMap opDict, IntIntMap feature) {
+		this.symbols = symbols;
+		this.opDict = opDict;
+		this.feature = feature;
+		delta();
+	}
+
+	/**
+	 * Symbol ids of the single-token dictionary words, in lower case, added
+	 * since the previous call; they are the keys of the map.
+	 */
+	public IntIntMap delta() {
+		IntIntMap added = new IntIntMap();
+		knownOpinions = collect(opDict, knownOpinions, added);
+		knownFeatures = collect(feature, knownFeatures, added);
+		lastDelta = added.size();
+		lastSentences = 0;
+		return added;
+	}
+
+	private int collect(IntIntMap dictionary, int from, IntIntMap added) {
+		for (int i = from; i < dictionary.size(); i++) {
+			int word = word(dictionary.keyAt(i));
+			if (word != SymbolTable.NONE)
+				added.put(word, 1);
+		}
+		return dictionary.size();
+	}
+
+	/**
+	 * The id of the lower-cased dictionary word, as the sentence tokens are
+	 * interned, or {@link SymbolTable#NONE} for a phrase.
+	 */
+	public int word(int id) {
+		String key = symbols.name(id);
+		if (key.indexOf(' ') >= 0)
+			return SymbolTable.NONE;
+		String lower = key.toLowerCase();
+		return lower.equals(key) ? id : symbols.intern(lower);
+	}
+
+	/**
+	 * The reviews of the store restricted to the sentences that contain a
+	 * word of the delta, in corpus order. Reviews without such a sentence are
+	 * left out.
+	 */
+	public Iterable<AnalyzedReview> affected(ParsedCorpusStore store, IntIntMap delta) {
+		int sentences[] = postings(store).sentencesContaining(delta);
+		lastSentences += sentences.length;
+		return select(store, sentences);
+	}
+
+	/** The postings of the store, built on the first call. */
+	public SentencePostings postings(ParsedCorpusStore store) {
+		SentencePostings built = postings.get(store);
+		if (built == null) {
+			built = new SentencePostings(symbols, store);
+			postings.put(store, built);
+		}
+		return built;
+	}
+
+	/**
+	 * The reviews of the store restricted to the given sentences (ascending),
+	 * in corpus order.
+	 */
+	public static Iterable<AnalyzedReview> select(final ParsedCorpusStore store, final int[] sentences) {
+		return new Iterable<AnalyzedReview>() {
+			public Iterator<AnalyzedReview> iterator() {
+				return new Iterator<AnalyzedReview>() {
+					private int next = 0;
+
+					public boolean hasNext() {
+						return next < sentences.length;
+					}
+
+					public AnalyzedReview next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						int review = store.reviewOf(sentences[next]);
+						int end = next + 1;
+						while (end < sentences.length && store.reviewOf(sentences[end]) == review)
+							end++;
+						AnalyzedReview selected = store.review(review, sentences, next, end);
+						next = end;
+						return selected;
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Like {@link #affected(ParsedCorpusStore, IntIntMap)} for a corpus held
+	 * in memory, which must be the same list, already analyzed, on every call.
+	 */
+	public List<AnalyzedReview> affected(List<AnalyzedReview> corpus, IntIntMap delta) {
+		SentencePostings built = postings.get(corpus);
+		if (built == null) {
+			built = new SentencePostings(symbols, corpus);
+			postings.put(corpus, built);
+		}
+		int sentences[] = built.sentencesContaining(delta);
+		lastSentences += sentences.length;
+		List<AnalyzedReview> selected = new ArrayList<AnalyzedReview>();
+		int next = 0;
+		int first = 0;
+		for (AnalyzedReview review : corpus) {
+			AnalyzedSentence all[] = review.getSentences();
+			int end = next;
+			while (end < sentences.length && sentences[end] < first + all.length)
+				end++;
+			if (end > next) {
+				AnalyzedSentence some[] = new AnalyzedSentence[end - next];
+				for (int i = next; i < end; i++)
+					some[i - next] = all[sentences[i] - first];
+				selected.add(new AnalyzedReview(review.getReviewId(), review.getScore(), some));
+				next = end;
+			}
+			first += all.length;
+		}
+		return selected;
+	}
+
+	/** Size of the last delta, for the iteration report. */
+	public int getLastDelta() {
+		return lastDelta;
+	}
+
+	/** Sentences scheduled by the calls to {@link #affected} since the last delta. */
+	public int getLastSentences() {
+		return lastSentences;
+	}
+}
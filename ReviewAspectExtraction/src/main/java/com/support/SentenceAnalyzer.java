@@ -0,0 +1,82 @@
+package com.support;
+
+import java.util.List;
+
+import edu.stanford.nlp.ling.Sentence;
+import edu.stanford.nlp.ling.TaggedWord;
+
+/**
+ * Tags review sentences and gets their dependencies from a
+ * {@link DependencyBackend}, going through a {@link SentenceCache} so that a
+ * sentence seen in an earlier fixpoint iteration is never sent to the
+ * models again.
+ */
+public class SentenceAnalyzer {
+
+	/** Flag bits describing which dependencies are produced; part of the parsed store's header. */
+	public static final int BASIC_DEPENDENCIES = 1, RULE_RELATIONS_ONLY = 2, HEURISTIC_DEPENDENCIES = 4;
+
+	private static final Metrics.Timer TAG = Metrics.getDefault().stage("tag");
+
+	private final ModelRegistry models;
+	private final SentenceCache cache;
+	private final DependencyBackend backend;
+
+	public SentenceAnalyzer(ModelRegistry models, SentenceCache cache) {
+		this(models, cache, 0);
+	}
+
+	/** dependencyFlags combines {@link #BASIC_DEPENDENCIES} and {@link #RULE_RELATIONS_ONLY}. */
+	public SentenceAnalyzer(ModelRegistry models, SentenceCache cache, int dependencyFlags) {
+		this(models, cache, dependencyFlags, new ParseBudget());
+	}
+
+	/** The PCFG parser within the given budget. */
+	public SentenceAnalyzer(ModelRegistry models, SentenceCache cache, int dependencyFlags, ParseBudget budget) {
+		this(models, cache, new PcfgDependencyBackend(models, dependencyFlags, budget));
+	}
+
+	public SentenceAnalyzer(ModelRegistry models, SentenceCache cache, DependencyBackend backend) {
+		this.models = models;
+		this.cache = cache;
+		this.backend = backend;
+	}
+
+	public int getDependencyFlags() {
+		return backend.getFlags();
+	}
+
+	public DependencyBackend getBackend() {
+		return backend;
+	}
+
+	public SentenceCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Tokens and POS tags of the sentence, from the cache when possible. The
+	 * sentence is only parsed by the backend when its dependencies are first
+	 * requested (see {@link AnalyzedSentence#getDependencies()}).
+	 */
+	public AnalyzedSentence analyze(String sentence) {
+		AnalyzedSentence analyzed = cache.get(sentence, backend);
+		if (analyzed != null)
+			return analyzed;
+		String word[] = sentence.split(" ");
+		analyzed = new AnalyzedSentence(sentence, word, tag(word), backend);
+		cache.put(sentence, backend, analyzed);
+		return analyzed;
+	}
+
+	/** {@link PosTags} ids of the tokens, tagged as they are so there is exactly one tag per token. */
+	public byte[] tag(String[] word) {
+		long time = TAG.start();
+		List<TaggedWord> tagged = models.tagger().tagSentence(Sentence.toWordList(word));
+		TAG.stop(time);
+		byte tags[] = new byte[word.length];
+		for (int i = 0; i < tags.length && i < tagged.size(); i++)
+			tags[i] = PosTags.tagId(tagged.get(i).tag());
+		return tags;
+	}
+}
@@ -0,0 +1,210 @@
+package com.support;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of analyzed sentences keyed by the normalized sentence
+ * text and the dependency backend (name and flags) that parses them, so
+ * analyzers with different settings can share a cache. The review text does not change between double-propagation
+ * iterations, so after the first pass every lookup should be a hit and the
+ * tagger and parser are no longer needed. Sentences read back from a
+ * {@link ParsedCorpusStore} are cached by store and index instead, so later
+ * iterations do not decode them again.
+ *
+ * The cache is bounded both by entry count and by an estimate of the heap
+ * the cached sentences retain; whichever limit is reached first evicts the
+ * least recently used entries. Each entry keeps the size it was charged
+ * with; a sentence parsed after it was cached charges the difference when
+ * its dependency graph is set. All methods are thread-safe.
+ */
+public class SentenceCache {
+
+	/** Default budget: a quarter of the maximum heap. */
+	public static final double DEFAULT_HEAP_FRACTION = 0.25;
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private final LinkedHashMap<Object, Entry> entries;
+	private long bytes;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/** A cached sentence with the size it is charged; told by the sentence when it has been parsed. */
+	private class Entry implements Runnable {
+
+		final Object key;
+		final AnalyzedSentence analyzed;
+		long charged;
+
+		Entry(Object key, AnalyzedSentence analyzed) {
+			this.key = key;
+			this.analyzed = analyzed;
+		}
+
+		public void run() {
+			synchronized (SentenceCache.this) {
+				if (entries.get(key) != this)
+					return;
+				long size = analyzed.estimatedBytes();
+				bytes += size - charged;
+				charged = size;
+				evict();
+			}
+		}
+	}
+
+	/** Key of a sentence analyzed from its text. */
+	private static final class TextKey {
+
+		final String backend;
+		final int flags;
+		final String text;
+
+		TextKey(DependencyBackend backend, String sentence) {
+			this.backend = backend.getName();
+			this.flags = backend.getFlags();
+			this.text = normalize(sentence);
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof TextKey))
+				return false;
+			TextKey other = (TextKey) o;
+			return other.flags == flags && other.text.equals(text) && other.backend.equals(backend);
+		}
+
+		public int hashCode() {
+			return (text.hashCode() * 31 + backend.hashCode()) * 31 + flags;
+		}
+	}
+
+	/** Key of a sentence of a parsed corpus store. */
+	private static final class StoredKey {
+
+		final ParsedCorpusStore store;
+		final int index;
+
+		StoredKey(ParsedCorpusStore store, int index) {
+			this.store = store;
+			this.index = index;
+		}
+
+		public boolean equals(Object o) {
+			return o instanceof StoredKey && ((StoredKey) o).store == store && ((StoredKey) o).index == index;
+		}
+
+		public int hashCode() {
+			return System.identityHashCode(store) * 31 + index;
+		}
+	}
+
+	public SentenceCache(int maxEntries, long maxBytes) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.entries = new LinkedHashMap<Object, Entry>(1024, 0.75f, true);
+	}
+
+	public static SentenceCache withDefaultBudget() {
+		return new SentenceCache(Integer.MAX_VALUE, (long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_FRACTION));
+	}
+
+	/** Lower-cases and collapses whitespace so trivially different spellings share an entry. */
+	public static String normalize(String sentence) {
+		StringBuilder sb = new StringBuilder(sentence.length());
+		boolean space = false;
+		for (int i = 0; i < sentence.length(); i++) {
+			char c = sentence.charAt(i);
+			if (Character.isWhitespace(c)) {
+				space = sb.length() > 0;
+				continue;
+			}
+			if (space) {
+				sb.append(' ');
+				space = false;
+			}
+			sb.append(Character.toLowerCase(c));
+		}
+		return sb.toString();
+	}
+
+	/** The sentence as analyzed with the given backend, if it is cached. */
+	public AnalyzedSentence get(String sentence, DependencyBackend backend) {
+		return lookup(new TextKey(backend, sentence));
+	}
+
+	public void put(String sentence, DependencyBackend backend, AnalyzedSentence analyzed) {
+		add(new TextKey(backend, sentence), analyzed);
+	}
+
+	/** The sentence at the given index of a store, if it was decoded and is still cached. */
+	AnalyzedSentence get(ParsedCorpusStore store, int index) {
+		return lookup(new StoredKey(store, index));
+	}
+
+	void put(ParsedCorpusStore store, int index, AnalyzedSentence analyzed) {
+		add(new StoredKey(store, index), analyzed);
+	}
+
+	private synchronized AnalyzedSentence lookup(Object key) {
+		Entry cached = entries.get(key);
+		if (cached == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return cached.analyzed;
+	}
+
+	private synchronized void add(Object key, AnalyzedSentence analyzed) {
+		Entry entry = new Entry(key, analyzed);
+		// registered before the estimate, so a graph set in between is charged once this lock is released
+		analyzed.setParsedListener(entry);
+		entry.charged = analyzed.estimatedBytes();
+		if (entry.charged > maxBytes)
+			return;
+		Entry previous = entries.put(entry.key, entry);
+		if (previous != null)
+			bytes -= previous.charged;
+		bytes += entry.charged;
+		evict();
+	}
+
+	/** Drops the least recently used entries until both limits hold, subtracting what each was charged. */
+	private void evict() {
+		Iterator<Map.Entry<Object, Entry>> eldest = entries.entrySet().iterator();
+		while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+			bytes -= eldest.next().getValue().charged;
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized String report() {
+		return "CacheEntries=" + entries.size() + " CacheBytes=" + bytes + " Hits=" + hits + " Misses=" + misses
+				+ " Evictions=" + evictions;
+	}
+}
@@ -0,0 +1,120 @@
+package com.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Word to sentence postings over a {@link ParsedCorpusStore} or an analyzed
+ * corpus held in memory, with the sentences numbered in corpus order. Words
+ * are the {@link SymbolTable} ids of the lower-cased tokens, like the
+ * dictionary keys, and every sentence is listed at most once per word.
+ */
+public class SentencePostings {
+
+	private final int sentenceCount;
+	/** Symbol id to word index. */
+	private final IntIntMap words = new IntIntMap();
+	/** Sentences containing word w are postings[start[w] .. start[w + 1]), ascending. */
+	private final int[] start;
+	private final int[] postings;
+
+	/** Postings over the sentences of the store, its tokens interned in symbols. */
+	public SentencePostings(SymbolTable symbols, final ParsedCorpusStore store) {
+		final int wordOf[] = new int[store.getTokenCount()];
+		for (int id = 0; id < wordOf.length; id++)
+			wordOf[id] = word(symbols.intern(store.token(id).toLowerCase()));
+		sentenceCount = store.getSentenceCount();
+		Sentences sentences = new Sentences() {
+			int[] words(int sentence) {
+				int ids[] = store.tokenIds(sentence);
+				for (int i = 0; i < ids.length; i++)
+					ids[i] = wordOf[ids[i]];
+				return ids;
+			}
+		};
+		start = new int[words.size() + 1];
+		postings = index(sentences);
+	}
+
+	/** Postings over the sentences of the reviews, which are analyzed if they are not yet. */
+	public SentencePostings(SymbolTable symbols, List<AnalyzedReview> corpus) {
+		List<int[]> sentenceWords = new ArrayList<int[]>();
+		for (AnalyzedReview review : corpus)
+			for (AnalyzedSentence sentence : review.getSentences()) {
+				int wordId[] = sentence.getWordIds(symbols);
+				int ids[] = new int[wordId.length];
+				for (int i = 0; i < ids.length; i++)
+					ids[i] = word(wordId[i]);
+				sentenceWords.add(ids);
+			}
+		final int wordsOf[][] = sentenceWords.toArray(new int[sentenceWords.size()][]);
+		sentenceCount = wordsOf.length;
+		start = new int[words.size() + 1];
+		postings = index(new Sentences() {
+			int[] words(int sentence) {
+				return wordsOf[sentence];
+			}
+		});
+	}
+
+	/** The word indices of one sentence. */
+	private abstract static class Sentences {
+		abstract int[] words(int sentence);
+	}
+
+	private int word(int symbol) {
+		int word = words.get(symbol, -1);
+		if (word < 0) {
+			word = words.size();
+			words.put(symbol, word);
+		}
+		return word;
+	}
+
+	/** Fills start and returns the postings, in two passes over the sentences. */
+	private int[] index(Sentences sentences) {
+		int lastSentence[] = new int[words.size()];
+		Arrays.fill(lastSentence, -1);
+		for (int s = 0; s < sentenceCount; s++)
+			for (int w : sentences.words(s))
+				if (lastSentence[w] != s) {
+					lastSentence[w] = s;
+					start[w + 1]++;
+				}
+		for (int w = 0; w < lastSentence.length; w++)
+			start[w + 1] += start[w];
+		int postings[] = new int[start[lastSentence.length]];
+		int fill[] = Arrays.copyOf(start, lastSentence.length);
+		Arrays.fill(lastSentence, -1);
+		for (int s = 0; s < sentenceCount; s++)
+			for (int w : sentences.words(s))
+				if (lastSentence[w] != s) {
+					lastSentence[w] = s;
+					postings[fill[w]++] = s;
+				}
+		return postings;
+	}
+
+	/** Number of sentences containing the word with the given symbol id. */
+	public int frequency(int wordId) {
+		int w = words.get(wordId, -1);
+		return w < 0 ? 0 : start[w + 1] - start[w];
+	}
+
+	/** Sentences containing any of the words, the keys of wordIds, in corpus order. */
+	public int[] sentencesContaining(IntIntMap wordIds) {
+		BitSet hits = new BitSet(sentenceCount);
+		for (int k = 0; k < wordIds.size(); k++) {
+			int w = words.get(wordIds.keyAt(k), -1);
+			if (w >= 0)
+				for (int i = start[w]; i < start[w + 1]; i++)
+					hits.set(postings[i]);
+		}
+		int sentences[] = new int[hits.cardinality()];
+		for (int i = 0, s = hits.nextSetBit(0); s >= 0; s = hits.nextSetBit(s + 1))
+			sentences[i++] = s;
+		return sentences;
+	}
+}
@@ -0,0 +1,111 @@
+package com.support;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide table of int ids for tokens and multi-word phrases. The
+ * dictionaries of the rule engine are keyed by these ids, so matching a
+ * token or extending a noun phrase is an id lookup instead of string
+ * comparison and concatenation.
+ *
+ * A phrase built with {@link #phrase(int, int)} gets the same id as its
+ * space separated text passed to {@link #intern(String)}. Lookups are
+ * lock-free; adding a symbol is synchronized.
+ *
+ * A table can be layered over another one: it sees the symbols the base
+ * had when the layer was made, under the same ids, and keeps the symbols
+ * added afterwards to itself, so they are freed with the layer. The
+ * extractor gives every in-memory extraction a layer of its own, which
+ * keeps the words of arbitrary client text out of the shared table.
+ */
+public class SymbolTable {
+
+	private static final SymbolTable DEFAULT = new SymbolTable();
+
+	public static final int NONE = -1;
+
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private final ConcurrentHashMap<Long, Integer> phrases = new ConcurrentHashMap<Long, Integer>();
+	private final SymbolTable base;
+	/** Ids below this one are the base's. */
+	private final int baseSize;
+	private volatile String[] names = new String[1024];
+	private int size;
+
+	public SymbolTable() {
+		base = null;
+		baseSize = 0;
+	}
+
+	/** A layer over the symbols base has now. */
+	public SymbolTable(SymbolTable base) {
+		this.base = base;
+		baseSize = base.size();
+		size = baseSize;
+		names = new String[64];
+	}
+
+	/** Whether this table is a layer over another one. */
+	public boolean isLayered() {
+		return base != null;
+	}
+
+	public static SymbolTable getDefault() {
+		return DEFAULT;
+	}
+
+	/** The id of the symbol, adding it when it is new. */
+	public int intern(String name) {
+		int id = lookup(name);
+		if (id != NONE)
+			return id;
+		synchronized (this) {
+			Integer added = ids.get(name);
+			if (added == null) {
+				if (size - baseSize == names.length)
+					names = Arrays.copyOf(names, names.length * 2);
+				names[size - baseSize] = name;
+				added = size++;
+				ids.put(name, added);
+			}
+			return added;
+		}
+	}
+
+	/** The id of the symbol, or {@link #NONE} when it was never interned. */
+	public int lookup(String name) {
+		if (base != null) {
+			int id = base.lookup(name);
+			if (id != NONE && id < baseSize)
+				return id;
+		}
+		Integer id = ids.get(name);
+		return id == null ? NONE : id;
+	}
+
+	/** The id of the phrase "first second"; the text is only built the first time. */
+	public int phrase(int first, int second) {
+		Long key = ((long) first << 32) | (second & 0xFFFFFFFFL);
+		Integer id = phrases.get(key);
+		if (id == null && base != null && first < baseSize && second < baseSize) {
+			id = base.phrases.get(key);
+			if (id != null && id >= baseSize)
+				id = null;
+		}
+		if (id == null) {
+			id = intern(name(first) + " " + name(second));
+			phrases.put(key, id);
+		}
+		return id;
+	}
+
+	public String name(int id) {
+		return id < baseSize ? base.name(id) : names[id - baseSize];
+	}
+
+	/** Number of symbols; ids run from 0 to size() - 1. */
+	public synchronized int size() {
+		return size;
+	}
+}
@@ -0,0 +1,94 @@
+package com.support;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-review trace records (sentences, tokens, tags, dependencies,
+ * annotations) written to the SLF4J logger {@link #LOGGER_NAME} at INFO
+ * level on a background thread. Only every n-th review is traced, and a
+ * record that does not fit into the queue is dropped and counted rather
+ * than making the extraction wait for the log.
+ *
+ * The records of one review are either all written or all skipped, as the
+ * sampling is on the review id; callers test {@link #isSampled(int)} before
+ * building a record so that quiet runs pay nothing for it.
+ */
+public class TraceSink {
+
+	public static final String LOGGER_NAME = "com.support.trace";
+
+	/** A sink that traces nothing. */
+	public static final TraceSink QUIET = new TraceSink(0, 0);
+
+	private static final String END = new String("end of trace");
+	private static final Metrics.Counter WRITTEN = Metrics.getDefault().counter("trace_records_total",
+			"Trace records written to the log.");
+	private static final Metrics.Counter DROPPED = Metrics.getDefault().counter("trace_dropped_total",
+			"Trace records dropped because the log could not keep up.");
+
+	private final int sampleEvery;
+	private final BlockingQueue<String> queue;
+	private final Thread writer;
+
+	/**
+	 * Traces the reviews whose id is a multiple of sampleEvery (1 traces all,
+	 * 0 none), holding at most capacity records not yet written.
+	 */
+	public TraceSink(int sampleEvery, int capacity) {
+		this.sampleEvery = sampleEvery;
+		if (sampleEvery <= 0) {
+			queue = null;
+			writer = null;
+			return;
+		}
+		queue = new ArrayBlockingQueue<String>(Math.max(1, capacity));
+		final Logger logger = LoggerFactory.getLogger(LOGGER_NAME);
+		writer = new Thread(new Runnable() {
+			public void run() {
+				try {
+					for (String record = queue.take(); record != END; record = queue.take()) {
+						logger.info(record);
+						WRITTEN.increment();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, "trace-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public boolean isEnabled() {
+		return writer != null;
+	}
+
+	/** Whether the records of this review are traced. */
+	public boolean isSampled(int reviewid) {
+		return writer != null && reviewid % sampleEvery == 0;
+	}
+
+	/** Queues the record, or drops it when the queue is full. */
+	public void trace(String record) {
+		if (writer != null && !queue.offer(record))
+			DROPPED.increment();
+	}
+
+	public long getDropped() {
+		return DROPPED.get();
+	}
+
+	/** Writes out the queued records (waiting at most timeoutMillis) and stops the writer. */
+	public void close(long timeoutMillis) throws InterruptedException {
+		if (writer == null)
+			return;
+		if (!queue.offer(END, timeoutMillis, TimeUnit.MILLISECONDS))
+			writer.interrupt();
+		writer.join(timeoutMillis);
+	}
+}